@@ -5,6 +5,10 @@ CREATE DATABASE IF NOT EXISTS test
 
 USE rpg;
 
+-- пересоздание базы с нуля: вместе с таблицей удаляются история миграций и счетчик id,
+-- иначе Flyway считал бы V2 и дальше уже примененными и индексы не вернулись бы
+DROP TABLE IF EXISTS flyway_schema_history;
+DROP TABLE IF EXISTS player_seq;
 DROP TABLE IF EXISTS player;
 
 CREATE TABLE player
@@ -24,6 +28,9 @@ CREATE TABLE player
     ENGINE = InnoDB
     DEFAULT CHARACTER SET = utf8;
 
+-- индексы и дальнейшие изменения схемы накатываются приложением при старте
+-- (src/main/resources/db/migration), эта версия таблицы принимается за baseline V1
+
 INSERT INTO player(name, title, race, profession, birthday, banned, experience, level, untilNextLevel)
 VALUES ('Ниус', 'Приходящий Без Шума', 'HOBBIT', 'ROGUE', '2010-10-12', false, 58347, 33, 1153)
      , ('Никрашш', 'НайтВульф', 'ORC', 'WARLOCK', '2010-02-14', false, 174403, 58, 2597)
@@ -0,0 +1,64 @@
+package com.game.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.config.WebConfig;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//сериализация игроков тем же ObjectMapper, что и в ответах REST (настройки из WebConfig)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerJsonBenchmark {
+
+    private ObjectMapper mapper;
+    private Player player;
+    private List<Player> page;
+    private byte[] playerJson;
+
+    @Param({"3", "1000"})
+    private int pageSize;
+
+    @Setup
+    public void setup() throws Exception {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        new WebConfig().configureMessageConverters(converters);
+        mapper = ((MappingJackson2HttpMessageConverter) converters.get(0)).getObjectMapper();
+
+        page = new ArrayList<>();
+        for (int i = 1; i <= pageSize; i++) {
+            page.add(new Player((long) i, "Ниус" + i, "Приходящий Без Шума", Race.values()[i % Race.values().length],
+                    Profession.values()[i % Profession.values().length], 58347, 33, 1153,
+                    new Date(1286830800000L), i % 2 == 0));
+        }
+        player = page.get(0);
+        playerJson = mapper.writeValueAsBytes(player);
+    }
+
+    @Benchmark
+    public byte[] writePlayer() throws Exception {
+        return mapper.writeValueAsBytes(player);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Player readPlayer() throws Exception {
+        return mapper.readValue(playerJson, Player.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.game.bench;
+
+import com.game.config.AppConfig;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//запросы по фильтрам через PlayerRepository к встроенной H2 (профиль dev, данные из test.sql)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerRepositoryBenchmark {
+
+    private AnnotationConfigWebApplicationContext context;
+    private PlayerRepository playerRepository;
+    private PlayerFilter filter;
+
+    @Param({"none", "race", "experience", "date", "name"})
+    private String filterName;
+
+    @Setup
+    public void setup() {
+        //AppConfig сканирует и web-конфигурацию, ей нужен ServletContext - как в тестах MockMvc
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("test.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(context.getBean("dataSource", DataSource.class));
+        playerRepository = context.getBean(PlayerRepository.class);
+        filter = filter(filterName);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<?> findPage() {
+        return playerRepository.findAllByFilter(filter, PageRequest.of(0, 3, Sort.by("level", "id")));
+    }
+
+    @Benchmark
+    public long count() {
+        return playerRepository.countByFilter(filter);
+    }
+
+    private static PlayerFilter filter(String name) {
+        switch (name) {
+            case "race":
+                return new PlayerFilter(null, null, Race.DWARF, Profession.CLERIC, null, null, true, null, null, null, null);
+            case "experience":
+                return new PlayerFilter(null, null, null, null, null, null, null, 30000, 100000, 10, 50);
+            case "date":
+                return new PlayerFilter(null, null, null, null, new Date(1104530400000L), new Date(1230760800000L),
+                        null, null, null, null, null);
+            case "name":
+                return new PlayerFilter("ра", null, null, null, null, null, null, null, null, null, null);
+            default:
+                return new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null);
+        }
+    }
+}
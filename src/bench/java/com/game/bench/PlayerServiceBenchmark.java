@@ -0,0 +1,59 @@
+package com.game.bench;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.service.PlayerService;
+import com.game.service.PlayerWriteBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+//проверки и расчеты PlayerService, которые выполняются на каждый запрос создания/изменения
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerServiceBenchmark {
+
+    private PlayerService playerService;
+    private Player player;
+
+    @Param({"804", "58347", "10000000"})
+    private int experience;
+
+    @Setup
+    public void setup() {
+        //базе и индексам здесь обращаться не к чему - зависимости не нужны
+        playerService = new PlayerService(null, null, null, null, null,
+                new PlayerWriteBuffer(false, 0, 0, 0), null, null);
+        player = new Player(null, "Ниус", "Приходящий Без Шума", Race.HOBBIT, Profession.ROGUE, experience,
+                null, null, new Date(1286830800000L), false);
+    }
+
+    @Benchmark
+    public int countLevel() {
+        return playerService.countLevel(player);
+    }
+
+    @Benchmark
+    public int countUntilNextLevel() {
+        return playerService.countUntilNextLevel(player);
+    }
+
+    @Benchmark
+    public boolean checkPlayerBeforeSave() {
+        return playerService.checkPlayerBeforeSave(player);
+    }
+
+    @Benchmark
+    public void isValidId(Blackhole blackhole) {
+        blackhole.consume(playerService.isValidId("12345"));
+        blackhole.consume(playerService.isValidId("-1"));
+        blackhole.consume(playerService.isValidId("abc"));
+    }
+}
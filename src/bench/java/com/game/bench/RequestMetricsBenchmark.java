@@ -0,0 +1,114 @@
+package com.game.bench;
+
+import com.game.metrics.RequestMetrics;
+import com.game.metrics.RequestMetricsInterceptor;
+import com.game.metrics.RequestPhases;
+import com.game.tracing.SpanExporter;
+import com.game.tracing.Tracer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import java.util.concurrent.TimeUnit;
+
+//накладные расходы метрик на один запрос: начало/конец запроса в перехватчике и по одному входу
+//в каждую фазу (сервис, репозиторий, сериализация) - бюджет меньше микросекунды
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestMetricsBenchmark {
+
+    private Tracer tracer;
+    private RequestMetricsInterceptor interceptor;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private HandlerMethod handler;
+
+    @Setup
+    public void setup() throws Exception {
+        //без выборки: трассировка стоит только id запроса
+        tracer = new Tracer(0, 16, 16, 1000, "target/bench-traces.jsonl", "bench", new StaticListableBeanFactory()
+                .getBeanProvider(SpanExporter.class));
+        interceptor = new RequestMetricsInterceptor(new RequestMetrics(), tracer);
+        request = new StubRequest();
+        response = new StubResponse();
+        handler = new HandlerMethod(this, RequestMetricsBenchmark.class.getMethod("instrumentedRequest"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        tracer.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void instrumentedRequest() {
+        interceptor.preHandle(request, response, handler);
+        long service = RequestPhases.enter(RequestPhases.Phase.SERVICE);
+        long repository = RequestPhases.enter(RequestPhases.Phase.REPOSITORY);
+        RequestPhases.exit(RequestPhases.Phase.REPOSITORY, repository);
+        RequestPhases.exit(RequestPhases.Phase.SERVICE, service);
+        long serialization = RequestPhases.enter(RequestPhases.Phase.SERIALIZATION);
+        RequestPhases.exit(RequestPhases.Phase.SERIALIZATION, serialization);
+        interceptor.afterCompletion(request, response, handler, null);
+    }
+
+    //запрос и ответ без накладных расходов MockHttpServletRequest/Response на заголовки и атрибуты,
+    //чтобы в замер попадали только метрики и трассировка
+    private static class StubRequest extends HttpServletRequestWrapper {
+        private Object trace;
+
+        StubRequest() {
+            super(new MockHttpServletRequest("GET", "/rest/players/1"));
+        }
+
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE.equals(name) ? "/rest/players/{id}" : trace;
+        }
+
+        @Override
+        public void setAttribute(String name, Object o) {
+            trace = o;
+        }
+    }
+
+    private static class StubResponse extends HttpServletResponseWrapper {
+        private String header;
+
+        StubResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            header = value;
+        }
+
+        @Override
+        public int getStatus() {
+            return 200;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.game.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.metrics.LatencyHistogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//нагрузка с постоянной целевой частотой (открытая модель): время начала каждого запроса задано расписанием,
+//задержка считается от запланированного начала, а не от фактической отправки. Если сервер тормозит,
+//запросы ждут в очереди и это ожидание попадает в задержку (без coordinated omission).
+//runClosed - закрытая модель для проверки числа одновременных соединений: частота не задается.
+public class LoadGenerator {
+
+    //операции смеси; вес - доля запросов
+    public enum Operation {
+        GET_ALL, COUNT, GET_PLAYER, CREATE, UPDATE, DELETE
+    }
+
+    private static final String[] RACES = {"HUMAN", "DWARF", "ELF", "GIANT", "ORC", "TROLL", "HOBBIT"};
+    private static final String[] PROFESSIONS = {"WARRIOR", "ROGUE", "SORCERER", "CLERIC", "PALADIN", "NAZGUL",
+            "WARLOCK", "DRUID"};
+    private static final String[] ORDERS = {"ID", "NAME", "EXPERIENCE", "BIRTHDAY", "LEVEL"};
+
+    private final String baseUrl;
+    private final Map<Operation, Integer> mix;
+    private final int rate;
+    private final int threads;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<Operation, LatencyHistogram> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final List<Long> seedIds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong maxBacklog = new AtomicLong();
+    private volatile long measureFromNanos;
+
+    public LoadGenerator(String baseUrl, Map<Operation, Integer> mix, int rate, int threads) {
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.rate = rate;
+        this.threads = threads;
+        for (Operation operation : Operation.values()) {
+            latency.put(operation, new LatencyHistogram());
+            errors.put(operation, new AtomicLong());
+        }
+    }
+
+    //id существующих игроков для getPlayer/update (первая страница)
+    public void loadSeedIds() throws IOException {
+        for (JsonNode player : mapper.readTree(request("GET", "/rest/players?pageSize=1000", null).body)) {
+            seedIds.add(player.get("id").asLong());
+        }
+        if (seedIds.isEmpty()) {
+            throw new IllegalStateException("no players to load-test against");
+        }
+    }
+
+    //warmup - без записи задержек, затем duration - с записью
+    public void run(long warmupSeconds, long durationSeconds) throws InterruptedException {
+        Operation[] schedule = schedule();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        measureFromNanos = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = schedule[(int) (i % schedule.length)];
+            executor.execute(() -> execute(operation, intended));
+            maxBacklog.accumulateAndGet(executor.getQueue().size(), Math::max);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    //закрытая модель: connections клиентов, каждый отправляет следующий запрос сразу после ответа на предыдущий,
+    //т.е. у сервера все время connections запросов в работе; задержка - от отправки. Клиенты - потоки
+    //с маленьким стеком, чтобы тысячи соединений помещались в память
+    public void runClosed(int connections, long warmupSeconds, long durationSeconds) throws InterruptedException {
+        Operation[] schedule = schedule();
+        ExecutorService clients = Executors.newFixedThreadPool(connections,
+                runnable -> new Thread(null, runnable, "load-client", 256 * 1024));
+        long start = System.nanoTime();
+        measureFromNanos = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFromNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong next = new AtomicLong();
+        for (int i = 0; i < connections; i++) {
+            clients.execute(() -> {
+                for (long sent = System.nanoTime(); sent < end; sent = System.nanoTime()) {
+                    execute(schedule[(int) (next.getAndIncrement() % schedule.length)], sent);
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(durationSeconds + 60, TimeUnit.SECONDS);
+    }
+
+    public Map<Operation, LatencyHistogram> getLatency() {
+        return latency;
+    }
+
+    public Map<Operation, AtomicLong> getErrors() {
+        return errors;
+    }
+
+    public long getMaxBacklog() {
+        return maxBacklog.get();
+    }
+
+    //перемешанная последовательность операций с долями из mix (детерминированно)
+    private Operation[] schedule() {
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                operations.add(entry.getKey());
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("empty operation mix");
+        }
+        Collections.shuffle(operations, new Random(42));
+        return operations.toArray(new Operation[0]);
+    }
+
+    private void execute(Operation operation, long intended) {
+        boolean ok;
+        try {
+            ok = perform(operation);
+        } catch (IOException | RuntimeException e) {
+            ok = false;
+        }
+        if (intended < measureFromNanos) {
+            return;
+        }
+        latency.get(operation).recordNanos(System.nanoTime() - intended);
+        if (!ok) {
+            errors.get(operation).incrementAndGet();
+        }
+    }
+
+    private boolean perform(Operation operation) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case GET_ALL:
+                return request("GET", "/rest/players?pageSize=20&pageNumber=" + random.nextInt(3)
+                        + "&order=" + ORDERS[random.nextInt(ORDERS.length)], null).status == 200;
+            case COUNT:
+                return request("GET", "/rest/players/count?race=" + RACES[random.nextInt(RACES.length)], null)
+                        .status == 200;
+            case GET_PLAYER:
+                return request("GET", "/rest/players/" + seedId(random), null).status == 200;
+            case CREATE: {
+                Response response = request("POST", "/rest/players/", newPlayer(random));
+                if (response.status == 200) {
+                    createdIds.add(mapper.readTree(response.body).get("id").asLong());
+                }
+                return response.status == 200;
+            }
+            case UPDATE:
+                return request("POST", "/rest/players/" + seedId(random),
+                        "{\"experience\": " + random.nextInt(10_000_000) + "}").status == 200;
+            case DELETE: {
+                //удаляем только созданных в этом прогоне, чтобы исходные данные не кончились
+                Long id = createdIds.poll();
+                if (id == null) {
+                    return request("GET", "/rest/players/" + seedId(random), null).status == 200;
+                }
+                return request("DELETE", "/rest/players/" + id, null).status == 200;
+            }
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private long seedId(ThreadLocalRandom random) {
+        return seedIds.get(random.nextInt(seedIds.size()));
+    }
+
+    private static String newPlayer(ThreadLocalRandom random) {
+        return "{\"name\": \"Нагрузка\", \"title\": \"Тест " + random.nextInt(1000) + "\", "
+                + "\"race\": \"" + RACES[random.nextInt(RACES.length)] + "\", "
+                + "\"profession\": \"" + PROFESSIONS[random.nextInt(PROFESSIONS.length)] + "\", "
+                + "\"birthday\": " + (950000000000L + random.nextLong(1_000_000_000_000L)) + ", "
+                + "\"experience\": " + random.nextInt(10_000_000) + "}";
+    }
+
+    private static class Response {
+        private final int status;
+        private final byte[] body;
+
+        private Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Response request(String method, String path, String json) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        if (json != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        //тело дочитываем всегда, чтобы соединение вернулось в keep-alive пул
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[8192];
+                for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer)) {
+                    body.write(buffer, 0, n);
+                }
+            }
+        }
+        return new Response(status, body.toByteArray());
+    }
+}
@@ -0,0 +1,105 @@
+package com.game.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.game.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+//отчет прогона: по каждой операции пропускная способность, ошибки и перцентили задержки;
+//сравнение с отчетом прошлого прогона (baseline) - задержка выросла или пропускная способность упала
+//больше чем на threshold (доля) -> регрессия
+public class LoadReport {
+    private static final String[] COMPARED = {"p50Micros", "p99Micros", "p999Micros"};
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+    private final List<String> regressions = new ArrayList<>();
+
+    //connections - 0 для открытой модели (rate), иначе число клиентов закрытой модели
+    public LoadReport(LoadGenerator generator, int rate, int connections, long durationSeconds) {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<LoadGenerator.Operation, LatencyHistogram> entry : generator.getLatency().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            Map<String, Object> operation = new LinkedHashMap<>(histogram.snapshot());
+            operation.put("throughput", (double) histogram.getCount() / durationSeconds);
+            operation.put("errors", generator.getErrors().get(entry.getKey()).get());
+            operations.put(entry.getKey().name(), operation);
+            total += histogram.getCount();
+        }
+        report.put("targetRate", rate);
+        report.put("connections", connections);
+        report.put("durationSeconds", durationSeconds);
+        report.put("throughput", (double) total / durationSeconds);
+        report.put("maxBacklog", generator.getMaxBacklog());
+        report.put("operations", operations);
+        report.put("regressions", regressions);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void compare(File baselineFile, double threshold) throws IOException {
+        JsonNode baselineReport = new ObjectMapper().readTree(baselineFile);
+        JsonNode baseline = baselineReport.get("operations");
+        //пропускную способность сравниваем только при той же нагрузке: целевой частоте или числе соединений
+        boolean sameLoad = baselineReport.get("targetRate").asInt() == (Integer) report.get("targetRate")
+                && baselineReport.path("connections").asInt(0) == (Integer) report.get("connections");
+        Map<String, Map<String, Object>> operations = (Map<String, Map<String, Object>>) report.get("operations");
+        for (Map.Entry<String, Map<String, Object>> entry : operations.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            for (String metric : COMPARED) {
+                long now = ((Number) entry.getValue().get(metric)).longValue();
+                long was = before.get(metric).asLong();
+                if (was > 0 && now > was * (1 + threshold)) {
+                    regressions.add(entry.getKey() + " " + metric + ": " + was + " -> " + now);
+                }
+            }
+            double throughput = (Double) entry.getValue().get("throughput");
+            double wasThroughput = before.get("throughput").asDouble();
+            if (sameLoad && throughput < wasThroughput * (1 - threshold)) {
+                regressions.add(entry.getKey() + " throughput: " + wasThroughput + " -> " + throughput);
+            }
+        }
+        report.put("baseline", baselineFile.getPath());
+        report.put("threshold", threshold);
+    }
+
+    public boolean hasRegressions() {
+        return !regressions.isEmpty();
+    }
+
+    public void write(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    @SuppressWarnings("unchecked")
+    public String summary() {
+        StringBuilder text = new StringBuilder(String.format("%-11s %8s %7s %9s %9s %9s %9s%n",
+                "operation", "req/s", "errors", "p50 us", "p99 us", "p999 us", "max us"));
+        Map<String, Map<String, Object>> operations = (Map<String, Map<String, Object>>) report.get("operations");
+        for (Map.Entry<String, Map<String, Object>> entry : operations.entrySet()) {
+            Map<String, Object> operation = entry.getValue();
+            text.append(String.format("%-11s %8.1f %7d %9d %9d %9d %9d%n", entry.getKey(), operation.get("throughput"),
+                    operation.get("errors"), operation.get("p50Micros"), operation.get("p99Micros"),
+                    operation.get("p999Micros"), operation.get("maxMicros")));
+        }
+        text.append(String.format("%-11s %8.1f  (%s)%n", "total", report.get("throughput"),
+                (Integer) report.get("connections") > 0
+                        ? report.get("connections") + " connections" : "rate " + report.get("targetRate")));
+        for (String regression : regressions) {
+            text.append("REGRESSION ").append(regression).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.game.load;
+
+import com.game.config.AppConfig;
+import com.game.config.WebConfig;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+//нагрузочный прогон: поднимает приложение во встроенном Tomcat (профиль dev - H2 с данными из test.sql,
+//prod - MySQL из datasource.properties), гоняет смесь запросов с заданной частотой и пишет отчет.
+//Запуск: mvn -Pload test-compile exec:exec@load -Dload.args="rate=300 duration=30 baseline=load-baseline.json"
+//Аргументы (key=value): profile, rate (запросов/с), warmup и duration (с), threads, port (0 - свободный),
+//mix (GET_ALL:40,COUNT:10,...), report, baseline, threshold (доля, 0.5 = 50%; точность гистограммы - 25%,
+//поэтому порог меньше 0.3 срабатывает на шуме).
+//connections (> 0) - вместо rate закрытая модель с таким числом одновременных клиентов, maxThreads - потоки Tomcat
+//(нужен лимит открытых файлов больше 2 * connections: ulimit -n; настройки приложения - через
+//-Dload.jvmArgs="-Dquery.executor.threads=20 ...").
+//Код выхода 1 - есть регрессии относительно baseline.
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("profile", "dev");
+        options.put("rate", "200");
+        options.put("warmup", "5");
+        options.put("duration", "30");
+        options.put("threads", "32");
+        options.put("connections", "0");
+        options.put("maxThreads", "200");
+        options.put("port", "0");
+        options.put("mix", "GET_ALL:35,COUNT:10,GET_PLAYER:30,CREATE:10,UPDATE:10,DELETE:5");
+        options.put("report", "target/load-report.json");
+        options.put("threshold", "0.5");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("expected key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        int connections = Integer.parseInt(options.get("connections"));
+        //keep-alive клиента на все соединения (по умолчанию - 5)
+        System.setProperty("http.maxConnections", String.valueOf(Math.max(5, connections)));
+
+        File baseDir = Files.createTempDirectory("rpg-load").toFile();
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(Integer.parseInt(options.get("port")));
+        Connector connector = tomcat.getConnector();
+        connector.setProperty("maxConnections", String.valueOf(Math.max(8192, connections)));
+        connector.setProperty("acceptCount", String.valueOf(Math.max(100, connections)));
+        connector.setProperty("maxThreads", options.get("maxThreads"));
+        Context context = tomcat.addContext("", baseDir.getAbsolutePath());
+
+        AnnotationConfigWebApplicationContext application = new AnnotationConfigWebApplicationContext();
+        application.getEnvironment().setActiveProfiles(options.get("profile"));
+        application.register(AppConfig.class, WebConfig.class);
+        Wrapper dispatcher = Tomcat.addServlet(context, "dispatcher", new DispatcherServlet(application));
+        dispatcher.setLoadOnStartup(1);
+        //поиски по фильтрам асинхронные (как в MyWebAppInit)
+        dispatcher.setAsyncSupported(true);
+        context.addServletMappingDecoded("/", "dispatcher");
+        tomcat.start();
+
+        int exitCode;
+        try {
+            if ("dev".equals(options.get("profile"))) {
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("test.sql"));
+                populator.setSqlScriptEncoding("UTF-8");
+                populator.execute(application.getBean("dataSource", DataSource.class));
+            }
+            int rate = Integer.parseInt(options.get("rate"));
+            long duration = Long.parseLong(options.get("duration"));
+            LoadGenerator generator = new LoadGenerator("http://localhost:" + tomcat.getConnector().getLocalPort(),
+                    mix(options.get("mix")), rate, Integer.parseInt(options.get("threads")));
+            generator.loadSeedIds();
+            if (connections > 0) {
+                generator.runClosed(connections, Long.parseLong(options.get("warmup")), duration);
+            } else {
+                generator.run(Long.parseLong(options.get("warmup")), duration);
+            }
+
+            LoadReport report = new LoadReport(generator, connections > 0 ? 0 : rate, connections, duration);
+            if (options.containsKey("baseline")) {
+                report.compare(new File(options.get("baseline")), Double.parseDouble(options.get("threshold")));
+            }
+            report.write(new File(options.get("report")));
+            System.out.print(report.summary());
+            exitCode = report.hasRegressions() ? 1 : 0;
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+        System.exit(exitCode);
+    }
+
+    private static Map<LoadGenerator.Operation, Integer> mix(String value) {
+        Map<LoadGenerator.Operation, Integer> mix = new EnumMap<>(LoadGenerator.Operation.class);
+        for (String part : value.split(",")) {
+            String[] weight = part.split(":");
+            mix.put(LoadGenerator.Operation.valueOf(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -1,12 +1,24 @@
 package com.game.config;
 
+import com.game.metrics.PoolMetrics;
+import com.game.repository.PlayerIdAllocator;
+import com.game.repository.PlayerIdGenerator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
@@ -27,47 +39,103 @@ import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.
 @EnableTransactionManagement
 @ComponentScan("com.game")
 @EnableJpaRepositories(basePackages = "com.game.repository")
+@PropertySource({"classpath:datasource.properties", "classpath:application.properties"})
 public class AppConfig {
 
+    @Autowired
+    private Environment env;
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
+    @DependsOn("flyway")
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource,
+                                                                       PlayerIdAllocator playerIdAllocator) {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
+        em.setDataSource(dataSource);
         em.setPackagesToScan("com.game.entity");
 
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         em.setJpaVendorAdapter(vendorAdapter);
         em.setJpaProperties(additionalProperties());
+        em.getJpaPropertyMap().put(PlayerIdGenerator.ALLOCATOR_SETTING, playerIdAllocator);
 
         return em;
     }
 
 
-    @Profile("prod")
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/rpg?serverTimezone=UTC&characterEncoding=UTF-8");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-        return dataSource;
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    @Profile("prod")
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(PoolMetrics poolMetrics) {
+        HikariConfig config = poolConfig("prod", poolMetrics);
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setJdbcUrl(env.getRequiredProperty("prod.db.url"));
+        config.setUsername(env.getRequiredProperty("prod.db.username"));
+        config.setPassword(env.getRequiredProperty("prod.db.password"));
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        return new HikariDataSource(config);
     }
 
     @Profile("dev")
-    @Bean(name = "dataSource")
-    public DataSource dataSourceForTests() {
+    @Bean(destroyMethod = "shutdown")
+    public EmbeddedDatabase embeddedDatabase() {
 
         return new EmbeddedDatabaseBuilder()
                 .generateUniqueName(true)
                 .setType(H2)
                 .setScriptEncoding("UTF-8")
                 .ignoreFailedDrops(true)
-                .addScript("test.sql")
                 .build();
     }
 
+    //в dev тот же пул, что и в prod, только поверх встроенной H2.
+    //Встроенная база - тоже DataSource: @Primary, чтобы по типу (Flyway, JPA, PlayerIdAllocator) внедрялся пул
+    @Profile("dev")
+    @Primary
+    @Bean(name = "dataSource", destroyMethod = "close")
+    public HikariDataSource dataSourceForTests(EmbeddedDatabase embeddedDatabase, PoolMetrics poolMetrics) {
+        HikariConfig config = poolConfig("dev", poolMetrics);
+        config.setDataSource(embeddedDatabase);
+        return new HikariDataSource(config);
+    }
+
+    //версионные миграции схемы, накатываются при старте в обоих профилях;
+    //уже существующая база prod (созданная init.sql) принимается за версию 1.
+    //Общие миграции - в db/migration, зависящие от базы - в db/mysql (prod) и db/h2 (dev)
+    @Bean(initMethod = "migrate")
+    public Flyway flyway(DataSource dataSource) {
+        String vendor = env.acceptsProfiles(Profiles.of("prod")) ? "mysql" : "h2";
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", "classpath:db/" + vendor)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    //общие настройки пула, значения берутся из datasource.properties с префиксом профиля
+    private HikariConfig poolConfig(String profile, PoolMetrics poolMetrics) {
+        String prefix = profile + ".pool.";
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("rpg-" + profile);
+        config.setMinimumIdle(env.getProperty(prefix + "minimumIdle", Integer.class, 5));
+        config.setMaximumPoolSize(env.getProperty(prefix + "maximumPoolSize", Integer.class, 10));
+        config.setConnectionTimeout(env.getProperty(prefix + "connectionTimeoutMs", Long.class, 3000L));
+        config.setValidationTimeout(env.getProperty(prefix + "validationTimeoutMs", Long.class, 1000L));
+        config.setIdleTimeout(env.getProperty(prefix + "idleTimeoutMs", Long.class, 600000L));
+        config.setMaxLifetime(env.getProperty(prefix + "maxLifetimeMs", Long.class, 1800000L));
+        config.setLeakDetectionThreshold(env.getProperty(prefix + "leakDetectionThresholdMs", Long.class, 0L));
+        config.setMetricsTrackerFactory(poolMetrics);
+        return config;
+    }
+
 
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
@@ -93,6 +161,17 @@ public class AppConfig {
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        //значения из Criteria-запросов передаем параметрами, а не литералами - SQL остается одинаковым
+        properties.setProperty("hibernate.criteria.literal_handling_mode", "BIND");
+        //пакетная вставка/обновление (id выдает PlayerIdAllocator, а не IDENTITY)
+        properties.setProperty("hibernate.jdbc.batch_size", env.getProperty("jdbc.batchSize", "100"));
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        //id из индекса по подстроке уходят в "in (...)": число параметров добивается до степени двойки,
+        //чтобы список разной длины давал несколько вариантов SQL, а не новый на каждый размер
+        properties.setProperty("hibernate.query.in_clause_parameter_padding", "true");
+        //статистика по запросам (GET /rest/admin/hibernate), включается и на ходу
+        properties.setProperty("hibernate.generate_statistics", env.getProperty("hibernate.statistics", "false"));
 
         return properties;
     }
@@ -0,0 +1,132 @@
+package com.game.controller;
+
+import com.game.metrics.HibernateMetrics;
+import com.game.metrics.PoolMetrics;
+import com.game.metrics.SlowQueryLog;
+import com.game.service.PlayerCache;
+import com.game.service.PlayerWriteBuffer;
+import com.game.service.QueryExecutor;
+import com.game.tracing.Tracer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/rest/admin")
+public class AdminController {
+    private final HikariDataSource dataSource;
+    private final PoolMetrics poolMetrics;
+    private final PlayerCache playerCache;
+    private final PlayerWriteBuffer playerWriteBuffer;
+    private final HibernateMetrics hibernateMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final Tracer tracer;
+    private final QueryExecutor queryExecutor;
+
+    @Autowired
+    public AdminController(HikariDataSource dataSource, PoolMetrics poolMetrics, PlayerCache playerCache,
+                           PlayerWriteBuffer playerWriteBuffer, HibernateMetrics hibernateMetrics,
+                           SlowQueryLog slowQueryLog, Tracer tracer, QueryExecutor queryExecutor) {
+        this.dataSource = dataSource;
+        this.poolMetrics = poolMetrics;
+        this.playerCache = playerCache;
+        this.playerWriteBuffer = playerWriteBuffer;
+        this.hibernateMetrics = hibernateMetrics;
+        this.slowQueryLog = slowQueryLog;
+        this.tracer = tracer;
+        this.queryExecutor = queryExecutor;
+    }
+
+    //1. состояние пула соединений
+    @GetMapping("/pool")
+    public ResponseEntity<Map<String, Object>> getPool() {
+        return new ResponseEntity<>(poolMetrics.snapshot(dataSource), HttpStatus.OK);
+    }
+
+    //2. счетчики кэша игроков
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCache() {
+        return new ResponseEntity<>(playerCache.snapshot(), HttpStatus.OK);
+    }
+
+    //3. отложенная запись: глубина очереди и время записи пачек
+    @GetMapping("/write-buffer")
+    public ResponseEntity<Map<String, Object>> getWriteBuffer() {
+        return new ResponseEntity<>(playerWriteBuffer.snapshot(), HttpStatus.OK);
+    }
+
+    //4. статистика Hibernate: счетчики сессий/сущностей/flush и по каждому запросу
+    @GetMapping("/hibernate")
+    public ResponseEntity<Map<String, Object>> getHibernate() {
+        return new ResponseEntity<>(hibernateMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    //4.1 включить/выключить сбор статистики Hibernate
+    @PostMapping("/hibernate")
+    public ResponseEntity<Map<String, Object>> setHibernate(@RequestParam("enabled") Boolean enabled) {
+        hibernateMetrics.setEnabled(enabled);
+        return new ResponseEntity<>(hibernateMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    //4.2 сбросить статистику Hibernate
+    @DeleteMapping("/hibernate")
+    public ResponseEntity<Map<String, Object>> clearHibernate() {
+        hibernateMetrics.clear();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    //5. медленные поиски по фильтрам (последние, самые новые первыми)
+    @GetMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> getSlowQueries() {
+        return new ResponseEntity<>(slowQueryLog.snapshot(), HttpStatus.OK);
+    }
+
+    //5.1 изменить порог журнала медленных поисков
+    @PostMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> setSlowQueryThreshold(
+            @RequestParam("thresholdMillis") Long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        slowQueryLog.setThresholdMillis(thresholdMillis);
+        return new ResponseEntity<>(slowQueryLog.snapshot(), HttpStatus.OK);
+    }
+
+    //5.2 очистить журнал медленных поисков
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Map<String, Object>> clearSlowQueries() {
+        slowQueryLog.clear();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    //6. трассировка: доля запросов в выборке и счетчики экспорта span
+    @GetMapping("/tracing")
+    public ResponseEntity<Map<String, Object>> getTracing() {
+        return new ResponseEntity<>(tracer.snapshot(), HttpStatus.OK);
+    }
+
+    //6.1 изменить долю трассируемых запросов (0..1)
+    @PostMapping("/tracing")
+    public ResponseEntity<Map<String, Object>> setTracing(@RequestParam("sampleRate") Double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        tracer.setSampleRate(sampleRate);
+        return new ResponseEntity<>(tracer.snapshot(), HttpStatus.OK);
+    }
+
+    //7. пул поисков по фильтрам: занятые потоки, очередь, отказы (503) и ожидание в очереди
+    @GetMapping("/query-executor")
+    public ResponseEntity<Map<String, Object>> getQueryExecutor() {
+        return new ResponseEntity<>(queryExecutor.snapshot(), HttpStatus.OK);
+    }
+}
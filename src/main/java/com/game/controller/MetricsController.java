@@ -0,0 +1,46 @@
+package com.game.controller;
+
+import com.game.metrics.RequestMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/rest/metrics")
+public class MetricsController {
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    private final RequestMetrics requestMetrics;
+
+    @Autowired
+    public MetricsController(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
+    //1. метрики запросов по endpoint: кол-во, статусы, задержки и время по фазам
+    //(validation, service, repository, serialization); format=prometheus - текстовый формат Prometheus
+    @GetMapping("")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        return new ResponseEntity<>(requestMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "", params = "format=prometheus")
+    public void getPrometheus(HttpServletResponse response) throws IOException {
+        response.setContentType(PROMETHEUS_CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        requestMetrics.writePrometheus(out);
+        out.flush();
+    }
+}
@@ -1,24 +1,54 @@
 package com.game.controller;
 import com.game.entity.Player;
+import com.game.entity.PlayerOrder;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.service.BulkItemResult;
+import com.game.service.ImportReport;
+import com.game.service.PlayerCursor;
+import com.game.service.PlayerImporter;
 import com.game.service.PlayerService;
+import com.game.service.QueryExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/rest/players")
 public class PlayerController{
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final PlayerService playerService;
+    private final PlayerImporter playerImporter;
+    private final QueryExecutor queryExecutor;
+
+    @Value("${bulk.maxItems:50000}")
+    private int bulkMaxItems;
 
     @Autowired
-    public PlayerController(PlayerService playerService) {
+    public PlayerController(PlayerService playerService, PlayerImporter playerImporter, QueryExecutor queryExecutor) {
         this.playerService = playerService;
+        this.playerImporter = playerImporter;
+        this.queryExecutor = queryExecutor;
     }
 
     //1.создать игрока
@@ -32,16 +62,77 @@ public class PlayerController{
             return new ResponseEntity<>( HttpStatus.BAD_REQUEST);
         }
         else {
-            player.setLevel(playerService.countLevel(player));	//высчитываем текущий  уровень
-            player.setUntilNextLevel(playerService.countUntilNextLevel(player));	//высчитываем до след уровня
-            if(player.getBanned() == null){
-                player.setBanned(false);
-            }
+            playerService.prepareNewPlayer(player);	//высчитываем уровень и опыт до след уровня
             Player savedPlayer = playerService.createPlayer(player);
             return new ResponseEntity<>(savedPlayer, HttpStatus.OK);
         }
     }
 
+    //1.1 создать игроков пакетом, по каждому элементу возвращается результат
+    @PostMapping("/bulk")
+    public ResponseEntity<List<BulkItemResult>> createPlayers(@RequestBody List<Player> players) {
+        if (players.size() > bulkMaxItems) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        return new ResponseEntity<>(playerService.createPlayers(players), HttpStatus.OK);
+    }
+
+    //1.2 загрузить игроков из тела запроса (NDJSON или CSV с заголовком, как в /export) потоком;
+    //ответ - счетчики и ошибки по номерам строк, 503 с Retry-After - уже идет import.writers загрузок
+    @PostMapping("/import")
+    public ResponseEntity<ImportReport> importPlayers(
+            @RequestParam(value = "format", required = false, defaultValue = "NDJSON") PlayerFormat format,
+            HttpServletRequest request) throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), 64 * 1024);
+        PlayerLineParser parser;
+        try {
+            parser = new PlayerLineParser(format, format == PlayerFormat.CSV ? reader.readLine() : null);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        long firstLine = format == PlayerFormat.CSV ? 2 : 1;
+        try {
+            return new ResponseEntity<>(playerImporter.importPlayers(reader, firstLine, parser::parse, parser::isComplete),
+                    HttpStatus.OK);
+        } catch (RejectedExecutionException e) {
+            //все пишущие потоки заняты другими загрузками - 503 сразу, а не ожидание в очереди
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(playerImporter.getRetryAfterSeconds()));
+            return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    //1.3 начислить опыт пакетом: игрокам из тела запроса (список id) или, если тела нет, всем найденным по фильтру;
+    //возвращает кол-во измененных игроков
+    @PostMapping("/experience")
+    public ResponseEntity<Integer> grantExperience(
+            @RequestParam(value = "delta") Integer delta,
+            @RequestBody(required = false) List<Long> ids,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "race", required = false) Race race,
+            @RequestParam(value = "profession", required = false) Profession profession,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "banned", required = false) Boolean banned,
+            @RequestParam(value = "minExperience", required = false) Integer minExperience,
+            @RequestParam(value = "maxExperience", required = false) Integer maxExperience,
+            @RequestParam(value = "minLevel", required = false) Integer minLevel,
+            @RequestParam(value = "maxLevel", required = false) Integer maxLevel) {
+
+        if (Math.abs((long) delta) > 10000000 || (ids != null && ids.contains(null))) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (ids != null) {
+            return new ResponseEntity<>(playerService.grantExperience(ids, delta), HttpStatus.OK);
+        }
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession,
+                after == null ? null : new Date(after), before == null ? null : new Date(before),
+                banned, minExperience, maxExperience, minLevel, maxLevel);
+        return new ResponseEntity<>(playerService.grantExperience(filter, delta), HttpStatus.OK);
+    }
+
     //2. удалить игрока
     @DeleteMapping("/{id}")
     public ResponseEntity<Player> deletePlayer(@PathVariable("id")  String playerId){
@@ -52,13 +143,10 @@ public class PlayerController{
         else {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        if(!playerService.existsById(id)) {
+        if(!playerService.deletePlayer(id)) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        else {
-            playerService.deletePlayer(id);
-            return new ResponseEntity<>(HttpStatus.OK);
-        }
+        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     //3. редактровать характеристики существующего
@@ -72,20 +160,31 @@ public class PlayerController{
         else {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
+        Optional<Player> newPlayer;
         if (playerService.isEmptyBody(player)){
-            return new ResponseEntity<>(playerService.findById(id),HttpStatus.OK);
+            newPlayer = playerService.findById(id);
         }
         else if (!playerService.checkBirthday(player.getBirthday())
                 || !playerService.checkExperience(player.getExperience())) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        else if(!playerService.existsById(id)) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
         else {
-            Player newPlayer = playerService.updatePlayer(id, player);
-            return new ResponseEntity<>(newPlayer, HttpStatus.OK);
+            newPlayer = playerService.updatePlayer(id, player);
+        }
+        return newPlayer.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    //3.1 прибавить опыт игроку (delta может быть отрицательной), без чтения-изменения-записи
+    @PostMapping("/{id}/experience")
+    public ResponseEntity<Player> addExperience(@PathVariable("id") String playerId,
+                                                @RequestParam(value = "delta") Integer delta) {
+        if (!playerService.isValidId(playerId) || Math.abs((long) delta) > 10000000) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
+        return playerService.addExperience(Long.parseLong(playerId), delta)
+                .map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     //4.найти по ID
@@ -98,18 +197,14 @@ public class PlayerController{
         else {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-       if(!playerService.existsById(id)) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        else {
-            Player player = playerService.findById(id);
-            return new ResponseEntity<>(player, HttpStatus.OK);
-        }
+        return playerService.findById(id)
+                .map(player -> new ResponseEntity<>(player, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
-    //5.найти по параметрам
+    //5.найти по параметрам (поиск выполняется в пуле QueryExecutor, при его перегрузке - 503)
     @GetMapping("")
-    public ResponseEntity<List<Player>> getAll(
+    public CompletableFuture<ResponseEntity<List<Player>>> getAll(
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "title", required = false) String title,
             @RequestParam(value = "race", required = false) Race race,
@@ -123,27 +218,80 @@ public class PlayerController{
             @RequestParam(value = "maxLevel", required = false) Integer maxLevel,
             @RequestParam(value = "order", required = false, defaultValue = "ID") PlayerOrder order,
             @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize   ) {
+            @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor) {
 
-        List<Player> playerList;
+        if (cursor != null) {
+            PlayerFilter filter = new PlayerFilter(name, title, race, profession,
+                    after == null ? null : new Date(after), before == null ? null : new Date(before),
+                    banned, minExperience, maxExperience, minLevel, maxLevel);
+            return getAllAfter(filter, order, cursor, pageSize);
+        }
 
-        if (after!= null && before != null) {
-          playerList = playerService.findAllByParams(name, title, race, profession,
-                    new Date(after), new Date(before), banned, minExperience, maxExperience,
-                    minLevel, maxLevel, pageNumber, pageSize);
+        return query(() -> {
+            List<Player> playerList = playerService.findAllByParams(name, title, race, profession,
+                    after == null ? null : new Date(after), before == null ? null : new Date(before),
+                    banned, minExperience, maxExperience, minLevel, maxLevel, order, pageNumber, pageSize);
+
+            return new ResponseEntity<>(playerList, HttpStatus.OK);
+        });
+    }
+
+    //5.1 постраничный вывод по курсору: пустой cursor - первая страница,
+    //курсор следующей страницы возвращается в заголовке X-Next-Cursor
+    private CompletableFuture<ResponseEntity<List<Player>>> getAllAfter(PlayerFilter filter, PlayerOrder order,
+                                                                        String cursor, Integer pageSize) {
+        if (pageSize <= 0) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
-        else {
-            playerList = playerService.findAllByParams(name, title, race, profession, null, null,
-                    banned, minExperience, maxExperience,
-                    minLevel, maxLevel,pageNumber, pageSize);
+        PlayerCursor from;
+        try {
+            from = cursor.isEmpty() ? null : PlayerCursor.decode(cursor, order);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
+        return query(() -> {
+            List<Player> playerList = playerService.findAllByParamsAfter(filter, order, from, pageSize);
+
+            HttpHeaders headers = new HttpHeaders();
+            if (playerList.size() == pageSize) {
+                headers.set(NEXT_CURSOR_HEADER, PlayerCursor.after(order, playerList.get(playerList.size() - 1)).encode());
+            }
+            return new ResponseEntity<>(playerList, headers, HttpStatus.OK);
+        });
+    }
+
+    //5.1 выгрузить всех найденных по параметрам потоком: NDJSON (строка - игрок) или CSV с заголовком
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "race", required = false) Race race,
+            @RequestParam(value = "profession", required = false) Profession profession,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "banned", required = false) Boolean banned,
+            @RequestParam(value = "minExperience", required = false) Integer minExperience,
+            @RequestParam(value = "maxExperience", required = false) Integer maxExperience,
+            @RequestParam(value = "minLevel", required = false) Integer minLevel,
+            @RequestParam(value = "maxLevel", required = false) Integer maxLevel,
+            @RequestParam(value = "order", required = false, defaultValue = "ID") PlayerOrder order,
+            @RequestParam(value = "format", required = false, defaultValue = "NDJSON") PlayerFormat format,
+            HttpServletResponse response) throws IOException {
 
-        return new ResponseEntity<>(playerList, HttpStatus.OK);
+        PlayerFilter filter = new PlayerFilter(name, title, race, profession,
+                after == null ? null : new Date(after), before == null ? null : new Date(before),
+                banned, minExperience, maxExperience, minLevel, maxLevel);
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        try (PlayerExportWriter writer = new PlayerExportWriter(format, response.getOutputStream())) {
+            playerService.exportByParams(filter, order, writer::write);
+        }
     }
 
-    //6. посчитать найденных по параметрам
+    //6. посчитать найденных по параметрам (в пуле QueryExecutor, как и поиск)
     @GetMapping("/count")
-    public ResponseEntity<Integer> getAllCount(
+    public CompletableFuture<ResponseEntity<Long>> getAllCount(
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "title", required = false) String title,
             @RequestParam(value = "race", required = false) Race race,
@@ -156,7 +304,14 @@ public class PlayerController{
             @RequestParam(value = "minLevel", required = false) Integer minLevel,
             @RequestParam(value = "maxLevel", required = false) Integer maxLevel) {
 
-        int countByParams = 0;
+        return query(() -> new ResponseEntity<>(count(name, title, race, profession, after, before, banned,
+                minExperience, maxExperience, minLevel, maxLevel), HttpStatus.OK));
+    }
+
+    private long count(String name, String title, Race race, Profession profession, Long after, Long before,
+                       Boolean banned, Integer minExperience, Integer maxExperience,
+                       Integer minLevel, Integer maxLevel) {
+        long countByParams;
         if (after!= null && before != null) {
             countByParams =  playerService.findAllByParamsAndCount(name, title, race, profession,
                     new Date(after), new Date(before), banned, minExperience, maxExperience,
@@ -178,7 +333,25 @@ public class PlayerController{
                     banned, minExperience, maxExperience,
                     minLevel, maxLevel);
         }
-        return new ResponseEntity<>(countByParams, HttpStatus.OK);
+        return countByParams;
+    }
+
+    //6.1 выполнить поиск в пуле QueryExecutor: очередь пула полна или ответа нет дольше таймаута - 503 с Retry-After
+    private <T> CompletableFuture<ResponseEntity<T>> query(Supplier<ResponseEntity<T>> search) {
+        return queryExecutor.submit(search).exceptionally(overloaded());
+    }
+
+    private <T> Function<Throwable, ResponseEntity<T>> overloaded() {
+        return e -> {
+            if (!QueryExecutor.isOverloaded(e)) {
+                //исключение самого поиска: future остается завершенным с ним (exceptionally снова оборачивает его
+                //в CompletionException), Spring MVC разворачивает обертку и передает причину обработчикам ошибок
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(queryExecutor.getRetryAfterSeconds()));
+            return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+        };
     }
     }
 
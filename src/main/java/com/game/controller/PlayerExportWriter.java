@@ -0,0 +1,85 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.game.entity.Player;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+//пишет игроков по одному прямо в поток ответа, без сборки списка;
+//JSON такой же, как у REST-методов (поля сущности, birthday - миллисекунды)
+public class PlayerExportWriter implements Closeable {
+    private static final ObjectWriter JSON = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .writerFor(Player.class);
+
+    private final PlayerFormat format;
+    private final Writer writer;
+
+    public PlayerExportWriter(PlayerFormat format, OutputStream out) throws IOException {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == PlayerFormat.CSV) {
+            writer.write(String.join(",", PlayerFormat.CSV_COLUMNS));
+            writer.write('\n');
+        }
+    }
+
+    public void write(Player player) {
+        try {
+            if (format == PlayerFormat.NDJSON) {
+                JSON.writeValue(writer, player);
+            } else {
+                writeCsv(player);
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsv(Player player) throws IOException {
+        writer.write(String.valueOf(player.getId()));
+        writer.write(',');
+        writer.write(csv(player.getName()));
+        writer.write(',');
+        writer.write(csv(player.getTitle()));
+        writer.write(',');
+        writer.write(csv(player.getRace()));
+        writer.write(',');
+        writer.write(csv(player.getProfession()));
+        writer.write(',');
+        writer.write(csv(player.getBirthday() == null ? null : player.getBirthday().getTime()));
+        writer.write(',');
+        writer.write(csv(player.getBanned()));
+        writer.write(',');
+        writer.write(csv(player.getExperience()));
+        writer.write(',');
+        writer.write(csv(player.getLevel()));
+        writer.write(',');
+        writer.write(csv(player.getUntilNextLevel()));
+    }
+
+    //null - пустое поле; запятые, кавычки и переводы строк - в кавычках
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+}
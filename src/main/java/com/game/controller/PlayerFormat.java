@@ -0,0 +1,21 @@
+package com.game.controller;
+
+//форматы построчной выгрузки/загрузки игроков: одна запись - одна строка
+public enum PlayerFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    //колонки CSV (первая строка файла)
+    public static final String[] CSV_COLUMNS = {"id", "name", "title", "race", "profession", "birthday", "banned",
+            "experience", "level", "untilNextLevel"};
+
+    private final String contentType;
+
+    PlayerFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,133 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.*;
+
+//разбор одной строки загрузки в игрока (формат как у PlayerExportWriter).
+//id, level и untilNextLevel из файла не берутся: id выдается заново, уровень пересчитывается
+public class PlayerLineParser {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    private static final ObjectReader JSON = MAPPER.readerFor(Player.class);
+    private static final Set<String> IGNORED = new HashSet<>(Arrays.asList("id", "level", "untilNextLevel"));
+
+    private final PlayerFormat format;
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    //header - первая строка CSV (для NDJSON не нужна)
+    public PlayerLineParser(PlayerFormat format, String header) {
+        this.format = format;
+        if (format == PlayerFormat.CSV) {
+            if (header == null) {
+                throw new IllegalArgumentException("missing CSV header");
+            }
+            List<String> names = split(header);
+            List<String> known = Arrays.asList(PlayerFormat.CSV_COLUMNS);
+            for (int i = 0; i < names.size(); i++) {
+                if (!known.contains(names.get(i))) {
+                    throw new IllegalArgumentException("unknown CSV column: " + names.get(i));
+                }
+                columns.put(names.get(i), i);
+            }
+        }
+    }
+
+    //запись CSV закончена, если кавычки в ней закрыты ("" внутри поля - две кавычки, четность не меняют);
+    //поле в кавычках может содержать перевод строки, и тогда запись занимает несколько строк файла
+    public boolean isComplete(String record) {
+        if (format != PlayerFormat.CSV) {
+            return true;
+        }
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 0;
+    }
+
+    public Player parse(String line) {
+        return format == PlayerFormat.NDJSON ? parseJson(line) : parseCsv(line);
+    }
+
+    private Player parseJson(String line) {
+        try {
+            ObjectNode node = (ObjectNode) MAPPER.readTree(line);
+            node.remove(IGNORED);
+            return JSON.treeToValue(node, Player.class);
+        } catch (JsonProcessingException | ClassCastException e) {
+            throw new IllegalArgumentException("invalid JSON");
+        }
+    }
+
+    private Player parseCsv(String line) {
+        List<String> values = split(line);
+        if (values.size() != columns.size()) {
+            throw new IllegalArgumentException("expected " + columns.size() + " columns, got " + values.size());
+        }
+        try {
+            String birthday = value(values, "birthday");
+            String banned = value(values, "banned");
+            String experience = value(values, "experience");
+            String race = value(values, "race");
+            String profession = value(values, "profession");
+            return new Player(null, value(values, "name"), value(values, "title"),
+                    race == null ? null : Race.valueOf(race),
+                    profession == null ? null : Profession.valueOf(profession),
+                    experience == null ? null : Integer.valueOf(experience), null, null,
+                    birthday == null ? null : new Date(Long.parseLong(birthday)),
+                    banned == null ? null : Boolean.valueOf(banned));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid value: " + e.getMessage());
+        }
+    }
+
+    //пустое поле и отсутствующая колонка - null
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || IGNORED.contains(column) || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    //поля через запятую, в кавычках могут быть запятые и "" вместо кавычки
+    private static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
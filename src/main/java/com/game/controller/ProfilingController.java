@@ -0,0 +1,92 @@
+package com.game.controller;
+
+import com.game.profiling.JfrProfiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+//записи Java Flight Recorder: запуск/остановка, список, скачивание .jfr
+@RestController
+@RequestMapping("/rest/admin/jfr")
+public class ProfilingController {
+    private final JfrProfiler jfrProfiler;
+
+    @Autowired
+    public ProfilingController(JfrProfiler jfrProfiler) {
+        this.jfrProfiler = jfrProfiler;
+    }
+
+    //1. начать запись: profile - настройки JDK (default или profile), durationSeconds - через сколько остановить
+    @PostMapping("")
+    public ResponseEntity<Map<String, Object>> start(
+            @RequestParam(value = "profile", required = false, defaultValue = "default") String profile,
+            @RequestParam(value = "durationSeconds", required = false, defaultValue = "60") Long durationSeconds)
+            throws IOException {
+        if (!jfrProfiler.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        if (durationSeconds <= 0 || durationSeconds > jfrProfiler.getMaxDurationSeconds()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(jfrProfiler.start(profile, durationSeconds), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    //2. список записей
+    @GetMapping("")
+    public ResponseEntity<List<Map<String, Object>>> list() {
+        if (!jfrProfiler.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        return new ResponseEntity<>(jfrProfiler.list(), HttpStatus.OK);
+    }
+
+    //3. остановить запись досрочно
+    @PostMapping("/{id}/stop")
+    public ResponseEntity<Map<String, Object>> stop(@PathVariable("id") Long id) {
+        if (!jfrProfiler.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        Map<String, Object> recording = jfrProfiler.stop(id);
+        if (recording == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(recording, HttpStatus.OK);
+    }
+
+    //4. скачать .jfr (для идущей записи - снимок на текущий момент)
+    @GetMapping("/{id}/file")
+    public void download(@PathVariable("id") Long id, HttpServletResponse response) throws IOException {
+        if (!jfrProfiler.isAvailable()) {
+            response.setStatus(HttpStatus.NOT_IMPLEMENTED.value());
+            return;
+        }
+        response.setContentType("application/octet-stream");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rpg-" + id + ".jfr\"");
+        if (!jfrProfiler.write(id, response.getOutputStream())) {
+            response.reset();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+    //5. удалить запись и ее файл
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> delete(@PathVariable("id") Long id) {
+        if (!jfrProfiler.isAvailable()) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        return new ResponseEntity<>(jfrProfiler.delete(id) ? HttpStatus.OK : HttpStatus.NOT_FOUND);
+    }
+}
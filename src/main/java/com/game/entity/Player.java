@@ -3,13 +3,16 @@ package com.game.entity;
 import java.util.Date;
 import javax.persistence.*;
 
+import org.hibernate.annotations.GenericGenerator;
+
 @Entity
 @Table (name = "player")
 public class Player {
 	
 @Id
 @Column(name = "id")
-@GeneratedValue(strategy = GenerationType.IDENTITY)
+@GeneratedValue(generator = "player_id")
+@GenericGenerator(name = "player_id", strategy = "com.game.repository.PlayerIdGenerator")
 private Long id;
 
 @Column(name = "name")
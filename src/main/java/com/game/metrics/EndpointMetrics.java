@@ -0,0 +1,81 @@
+package com.game.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//счетчики одного endpoint: запросы по HTTP-статусам, общее время и время по фазам
+public class EndpointMetrics {
+
+	private static final int MIN_STATUS = 100;
+	private static final int MAX_STATUS = 599;
+
+	private final String name;
+	private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS - MIN_STATUS + 1);
+	private final LatencyHistogram latency = new LatencyHistogram();
+	//по ordinal фазы, заполнены только фазы RequestPhases.BREAKDOWN
+	private final LatencyHistogram[] phases = new LatencyHistogram[RequestPhases.Phase.values().length];
+
+	public EndpointMetrics(String name) {
+		this.name = name;
+		for (RequestPhases.Phase phase : RequestPhases.BREAKDOWN) {
+			phases[phase.ordinal()] = new LatencyHistogram();
+		}
+	}
+
+	public void record(int status, long totalNanos, long[] phaseNanos) {
+		statuses.incrementAndGet(Math.min(Math.max(status, MIN_STATUS), MAX_STATUS) - MIN_STATUS);
+		latency.recordNanos(totalNanos);
+		for (RequestPhases.Phase phase : RequestPhases.BREAKDOWN) {
+			phases[phase.ordinal()].recordNanos(phaseNanos[phase.ordinal()]);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public LatencyHistogram getPhase(RequestPhases.Phase phase) {
+		return phases[phase.ordinal()];
+	}
+
+	//статус -> кол-во, нулевые пропускаются
+	public Map<Integer, Long> statuses() {
+		Map<Integer, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < statuses.length(); i++) {
+			long value = statuses.get(i);
+			if (value > 0) {
+				result.put(i + MIN_STATUS, value);
+			}
+		}
+		return result;
+	}
+
+	public long getErrors() {
+		long errors = 0;
+		for (int i = 400 - MIN_STATUS; i < statuses.length(); i++) {
+			errors += statuses.get(i);
+		}
+		return errors;
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("endpoint", name);
+		result.put("count", latency.getCount());
+		result.put("errors", getErrors());
+		result.put("statuses", statuses());
+		result.put("latency", latency.snapshot());
+		Map<String, Object> byPhase = new LinkedHashMap<>();
+		for (RequestPhases.Phase phase : RequestPhases.BREAKDOWN) {
+			byPhase.put(phase.name().toLowerCase(Locale.ROOT), getPhase(phase).snapshot());
+		}
+		result.put("phases", byPhase);
+		return result;
+	}
+}
@@ -0,0 +1,67 @@
+package com.game.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+
+//статистика Hibernate: включается и выключается на ходу (сбор стоит несколько счетчиков на запрос),
+//по запросам - число выполнений, среднее/максимальное время, строки; запросы отсортированы по суммарному времени
+@Component
+public class HibernateMetrics {
+
+	private final Statistics statistics;
+
+	public HibernateMetrics(EntityManagerFactory entityManagerFactory) {
+		this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	public boolean isEnabled() {
+		return statistics.isStatisticsEnabled();
+	}
+
+	public void setEnabled(boolean enabled) {
+		statistics.setStatisticsEnabled(enabled);
+	}
+
+	public void clear() {
+		statistics.clear();
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("enabled", statistics.isStatisticsEnabled());
+		result.put("since", statistics.getStartTime());
+		result.put("sessions", statistics.getSessionOpenCount());
+		result.put("transactions", statistics.getTransactionCount());
+		result.put("statements", statistics.getPrepareStatementCount());
+		result.put("flushes", statistics.getFlushCount());
+		result.put("entityLoads", statistics.getEntityLoadCount());
+		result.put("entityFetches", statistics.getEntityFetchCount());
+		result.put("entityInserts", statistics.getEntityInsertCount());
+		result.put("entityUpdates", statistics.getEntityUpdateCount());
+		result.put("entityDeletes", statistics.getEntityDeleteCount());
+		result.put("queryExecutions", statistics.getQueryExecutionCount());
+		result.put("queryMaxMillis", statistics.getQueryExecutionMaxTime());
+		result.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+
+		List<Map<String, Object>> queries = new ArrayList<>();
+		for (String query : statistics.getQueries()) {
+			QueryStatistics stats = statistics.getQueryStatistics(query);
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("query", query);
+			item.put("executions", stats.getExecutionCount());
+			item.put("totalMillis", stats.getExecutionTotalTime());
+			item.put("meanMillis", stats.getExecutionAvgTimeAsDouble());
+			item.put("maxMillis", stats.getExecutionMaxTime());
+			item.put("rows", stats.getExecutionRowCount());
+			queries.add(item);
+		}
+		queries.sort(Comparator.comparing((Map<String, Object> item) -> (Long) item.get("totalMillis")).reversed());
+		result.put("queries", queries);
+		return result;
+	}
+}
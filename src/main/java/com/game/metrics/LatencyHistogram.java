@@ -0,0 +1,118 @@
+package com.game.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//гистограмма задержек без блокировок и без аллокаций на запись:
+//корзины по степеням двойки в микросекундах, каждая делится на 4 подкорзины (погрешность <= 25%)
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKETS = 4;
+	private static final int MAGNITUDES = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(MAGNITUDES * SUB_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	public void recordNanos(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(TimeUnit.NANOSECONDS.toMicros(nanos)));
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	public void recordMillis(long millis) {
+		recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	//верхняя граница значения (в микросекундах), ниже которой лежит доля quantile записей
+	public long percentileMicros(double quantile) {
+		long total = 0;
+		long[] snapshot = new long[buckets.length()];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return bucketUpperBound(i);
+			}
+		}
+		return bucketUpperBound(snapshot.length - 1);
+	}
+
+	//значения корзин (верхняя граница в мкс -> кол-во), пустые пропускаются
+	public Map<Long, Long> buckets() {
+		Map<Long, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < buckets.length(); i++) {
+			long value = buckets.get(i);
+			if (value > 0) {
+				result.put(bucketUpperBound(i), value);
+			}
+		}
+		return result;
+	}
+
+	public Map<String, Object> snapshot() {
+		long n = getCount();
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("count", n);
+		result.put("meanMicros", n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(getTotalNanos() / n));
+		result.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()));
+		result.put("p50Micros", percentileMicros(0.5));
+		result.put("p90Micros", percentileMicros(0.9));
+		result.put("p99Micros", percentileMicros(0.99));
+		result.put("p999Micros", percentileMicros(0.999));
+		return result;
+	}
+
+	public void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+	static int bucketIndex(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+		int sub = (int) ((micros >>> (magnitude - 2)) & (SUB_BUCKETS - 1));
+		int index = (magnitude - 1) * SUB_BUCKETS + sub;
+		return Math.min(index, MAGNITUDES * SUB_BUCKETS - 1);
+	}
+
+	static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int magnitude = index / SUB_BUCKETS + 1;
+		int sub = index % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (magnitude - 2)) - 1;
+	}
+}
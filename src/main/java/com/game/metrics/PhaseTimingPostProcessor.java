@@ -0,0 +1,77 @@
+package com.game.metrics;
+
+import com.game.profiling.JfrSupport;
+import com.game.profiling.PlayerJfrEvents;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+
+//замер фаз CONTROLLER, SERVICE и REPOSITORY (и span трассировки по ним): совет добавляется первым
+//(снаружи транзакции) в прокси контроллеров, сервисов и репозиториев Spring Data, так что commit входит
+//во время фазы. Проверки, которые контроллер вызывает у сервиса (методы с @ValidationStep),
+//остаются в фазе контроллера (VALIDATION). Во время записи JFR вызов репозитория - событие PlayerQuery
+@Component
+public class PhaseTimingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+	private static final long serialVersionUID = 1L;
+
+	//фаза по классу объекта, на котором вызван метод
+	private static final ClassValue<RequestPhases.Phase> PHASES = new ClassValue<RequestPhases.Phase>() {
+		@Override
+		protected RequestPhases.Phase computeValue(Class<?> type) {
+			if (Repository.class.isAssignableFrom(type)) {
+				return RequestPhases.Phase.REPOSITORY;
+			}
+			return isController(type) ? RequestPhases.Phase.CONTROLLER : RequestPhases.Phase.SERVICE;
+		}
+	};
+
+	public PhaseTimingPostProcessor() {
+		MethodInterceptor timing = invocation -> {
+			RequestPhases.Phase phase = PHASES.get(AopUtils.getTargetClass(invocation.getThis()));
+			Object event = phase == RequestPhases.Phase.REPOSITORY && JfrSupport.AVAILABLE
+					? PlayerJfrEvents.beginQuery() : null;
+			long started = RequestPhases.enter(phase, invocation.getMethod());
+			Object result = null;
+			try {
+				result = invocation.proceed();
+				return result;
+			} finally {
+				RequestPhases.exit(phase, started);
+				if (event != null) {
+					PlayerJfrEvents.endQuery(event, invocation.getMethod(), invocation.getArguments(), result);
+				}
+			}
+		};
+		StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				if (method.getDeclaringClass() == Object.class) {
+					return false;
+				}
+				if (Repository.class.isAssignableFrom(targetClass) || isController(targetClass)) {
+					return true;
+				}
+				return !AnnotatedElementUtils.hasAnnotation(AopUtils.getMostSpecificMethod(method, targetClass),
+						ValidationStep.class);
+			}
+		};
+		pointcut.setClassFilter(type -> Repository.class.isAssignableFrom(type) || isController(type)
+				|| type.isAnnotationPresent(Service.class));
+		this.advisor = new DefaultPointcutAdvisor(pointcut, timing);
+		setBeforeExistingAdvisors(true);
+	}
+
+	private static boolean isController(Class<?> type) {
+		return AnnotatedElementUtils.hasAnnotation(type, Controller.class);
+	}
+}
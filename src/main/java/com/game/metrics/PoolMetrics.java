@@ -0,0 +1,73 @@
+package com.game.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//метрики пула соединений: гистограммы получения/использования/создания соединений + текущее состояние пула
+public class PoolMetrics implements MetricsTrackerFactory {
+
+	private final LatencyHistogram acquire = new LatencyHistogram();
+	private final LatencyHistogram usage = new LatencyHistogram();
+	private final LatencyHistogram creation = new LatencyHistogram();
+	private final LongAdder timeouts = new LongAdder();
+
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		return new IMetricsTracker() {
+			@Override
+			public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+				creation.recordMillis(connectionCreatedMillis);
+			}
+
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				acquire.recordNanos(elapsedAcquiredNanos);
+			}
+
+			@Override
+			public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+				usage.recordMillis(elapsedBorrowedMillis);
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				timeouts.increment();
+			}
+		};
+	}
+
+	public LatencyHistogram getAcquire() {
+		return acquire;
+	}
+
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	public Map<String, Object> snapshot(HikariDataSource dataSource) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("pool", dataSource.getPoolName());
+		result.put("minimumIdle", dataSource.getMinimumIdle());
+		result.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		if (pool != null) {
+			result.put("active", pool.getActiveConnections());
+			result.put("idle", pool.getIdleConnections());
+			result.put("pending", pool.getThreadsAwaitingConnection());
+			result.put("total", pool.getTotalConnections());
+		}
+		result.put("timeouts", getTimeouts());
+		result.put("acquire", acquire.snapshot());
+		result.put("acquireBuckets", acquire.buckets());
+		result.put("usage", usage.snapshot());
+		result.put("creation", creation.snapshot());
+		return result;
+	}
+}
@@ -0,0 +1,86 @@
+package com.game.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//метрики запросов по endpoint (метод контроллера): отдаются в JSON и в текстовом формате Prometheus
+@Component
+public class RequestMetrics {
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	private final ConcurrentMap<Object, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+	//handler - ключ endpoint (метод контроллера); null, если запросов к нему еще не было
+	public EndpointMetrics get(Object handler) {
+		return endpoints.get(handler);
+	}
+
+	public EndpointMetrics register(Object handler, String name) {
+		return endpoints.computeIfAbsent(handler, key -> new EndpointMetrics(name));
+	}
+
+	public List<EndpointMetrics> endpoints() {
+		List<EndpointMetrics> result = new ArrayList<>(endpoints.values());
+		result.sort(Comparator.comparing(EndpointMetrics::getName));
+		return result;
+	}
+
+	public Map<String, Object> snapshot() {
+		List<Map<String, Object>> list = new ArrayList<>();
+		for (EndpointMetrics endpoint : endpoints()) {
+			list.add(endpoint.snapshot());
+		}
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("endpoints", list);
+		return result;
+	}
+
+	public void writePrometheus(Writer out) throws IOException {
+		List<EndpointMetrics> list = endpoints();
+
+		out.write("# HELP rpg_http_requests_total Requests by endpoint and HTTP status.\n");
+		out.write("# TYPE rpg_http_requests_total counter\n");
+		for (EndpointMetrics endpoint : list) {
+			for (Map.Entry<Integer, Long> status : endpoint.statuses().entrySet()) {
+				out.write("rpg_http_requests_total{endpoint=\"" + escape(endpoint.getName()) + "\",status=\""
+						+ status.getKey() + "\"} " + status.getValue() + "\n");
+			}
+		}
+
+		out.write("# HELP rpg_http_request_duration_seconds Request latency by endpoint.\n");
+		out.write("# TYPE rpg_http_request_duration_seconds summary\n");
+		for (EndpointMetrics endpoint : list) {
+			writeSummary(out, "rpg_http_request_duration_seconds",
+					"endpoint=\"" + escape(endpoint.getName()) + "\"", endpoint.getLatency());
+		}
+
+		out.write("# HELP rpg_http_request_phase_seconds Request time by endpoint and phase.\n");
+		out.write("# TYPE rpg_http_request_phase_seconds summary\n");
+		for (EndpointMetrics endpoint : list) {
+			for (RequestPhases.Phase phase : RequestPhases.BREAKDOWN) {
+				writeSummary(out, "rpg_http_request_phase_seconds", "endpoint=\"" + escape(endpoint.getName())
+						+ "\",phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"", endpoint.getPhase(phase));
+			}
+		}
+	}
+
+	private static void writeSummary(Writer out, String metric, String labels, LatencyHistogram histogram)
+			throws IOException {
+		for (double quantile : QUANTILES) {
+			out.write(metric + "{" + labels + ",quantile=\"" + quantile + "\"} "
+					+ histogram.percentileMicros(quantile) / 1e6 + "\n");
+		}
+		out.write(metric + "_sum{" + labels + "} " + histogram.getTotalNanos() / 1e9 + "\n");
+		out.write(metric + "_count{" + labels + "} " + histogram.getCount() + "\n");
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,126 @@
+package com.game.metrics;
+
+import com.game.profiling.JfrSupport;
+import com.game.profiling.PlayerJfrEvents;
+import com.game.tracing.Span;
+import com.game.tracing.Trace;
+import com.game.tracing.Tracer;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+//замер и трассировка запросов к методам контроллеров: начало - до разбора параметров, конец - после записи ответа.
+//Endpoint - метод контроллера, имя - "HTTP-метод шаблон пути" (GET /rest/players/{id}).
+//id трассировки запроса кладется в MDC (traceId - в логах) и в заголовок ответа X-Trace-Id.
+//Во время записи JFR запрос - событие PlayerRequest.
+//Асинхронный запрос (метод контроллера вернул CompletableFuture) - один замер: при освобождении потока контейнера
+//состояние запроса отвязывается от него и продолжается в потоке, который пишет ответ
+@Component
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+	public static final String TRACEPARENT_HEADER = "traceparent";
+	public static final String TRACE_ID_HEADER = "X-Trace-Id";
+	public static final String TRACE_ID_MDC_KEY = "traceId";
+
+	private static final String TRACE_ATTRIBUTE = Trace.class.getName();
+	private static final String JFR_EVENT_ATTRIBUTE = PlayerJfrEvents.class.getName();
+	private static final String PHASES_ATTRIBUTE = RequestPhases.State.class.getName();
+
+	private final RequestMetrics requestMetrics;
+	private final Tracer tracer;
+
+	//время по фазам последнего запроса потока, переиспользуется
+	private final ThreadLocal<long[]> phases =
+			ThreadLocal.withInitial(() -> new long[RequestPhases.Phase.values().length]);
+
+	public RequestMetricsInterceptor(RequestMetrics requestMetrics, Tracer tracer) {
+		this.requestMetrics = requestMetrics;
+		this.tracer = tracer;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (request.getDispatcherType() == DispatcherType.ASYNC) {
+			Object state = request.getAttribute(PHASES_ATTRIBUTE);
+			if (state != null) {
+				RequestPhases.resume((RequestPhases.State) state);
+				MDC.put(TRACE_ID_MDC_KEY, ((Trace) request.getAttribute(TRACE_ATTRIBUTE)).getTraceId());
+			}
+			return true;
+		}
+		if (handler instanceof HandlerMethod) {
+			Trace trace = tracer.start(request.getHeader(TRACEPARENT_HEADER));
+			if (trace.isSampled()) {
+				trace.setName(endpointName(request));
+			}
+			String traceId = trace.getTraceId();
+			MDC.put(TRACE_ID_MDC_KEY, traceId);
+			response.setHeader(TRACE_ID_HEADER, traceId);
+			request.setAttribute(TRACE_ATTRIBUTE, trace);
+			if (JfrSupport.AVAILABLE) {
+				Object event = PlayerJfrEvents.beginRequest();
+				if (event != null) {
+					request.setAttribute(JFR_EVENT_ATTRIBUTE, event);
+				}
+			}
+			RequestPhases.begin(trace);
+		}
+		return true;
+	}
+
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+											   Object handler) {
+		if (handler instanceof HandlerMethod) {
+			request.setAttribute(PHASES_ATTRIBUTE, RequestPhases.suspend());
+			MDC.remove(TRACE_ID_MDC_KEY);
+		}
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+								Exception ex) {
+		if (!(handler instanceof HandlerMethod)) {
+			return;
+		}
+		long[] times = phases.get();
+		long total = RequestPhases.end(times);
+		int status = response.getStatus();
+		if (ex != null && status < 400) {
+			status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+		}
+		Object method = ((HandlerMethod) handler).getMethod();
+		EndpointMetrics endpoint = requestMetrics.get(method);
+		if (endpoint == null) {
+			endpoint = requestMetrics.register(method, endpointName(request));
+		}
+		endpoint.record(status, total, times);
+
+		if (JfrSupport.AVAILABLE) {
+			Object event = request.getAttribute(JFR_EVENT_ATTRIBUTE);
+			if (event != null) {
+				PlayerJfrEvents.endRequest(event, endpoint.getName(), request.getQueryString(), status);
+			}
+		}
+
+		Trace trace = (Trace) request.getAttribute(TRACE_ATTRIBUTE);
+		if (trace != null && trace.isSampled()) {
+			Span root = trace.getRoot();
+			root.setAttribute("http.method", request.getMethod());
+			root.setAttribute("http.route", String.valueOf(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)));
+			root.setAttribute("http.status_code", status);
+			root.setError(status >= 500);
+			tracer.finish(trace);
+		}
+		MDC.remove(TRACE_ID_MDC_KEY);
+	}
+
+	private static String endpointName(HttpServletRequest request) {
+		return request.getMethod() + " " + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+	}
+}
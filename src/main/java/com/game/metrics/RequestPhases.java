@@ -0,0 +1,223 @@
+package com.game.metrics;
+
+import com.game.tracing.Span;
+import com.game.tracing.Trace;
+import org.slf4j.MDC;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+//время запроса по фазам. Состояние запроса (State) привязано к потоку, который сейчас его выполняет:
+//поток контейнера, поток пула запросов (fork/join) или поток асинхронного завершения (suspend/resume).
+//Вложенные вызовы одной фазы (сервис вызывает сервис) считаются один раз - по внешнему вызову.
+//Вне запроса (фоновые потоки записи, загрузки) ничего не копится.
+//Если запрос попал в выборку трассировки, на каждый учтенный вход в фазу открывается span
+public final class RequestPhases {
+
+	public enum Phase {
+		BINDING, QUEUE, VALIDATION, SERVICE, REPOSITORY, SERIALIZATION, CONTROLLER
+	}
+
+	//фазы, на которые раскладывается время запроса (в сумме - все время запроса);
+	//CONTROLLER - вспомогательная: метод контроллера вместе с вызванным из него сервисом
+	public static final Phase[] BREAKDOWN = {
+			Phase.BINDING, Phase.QUEUE, Phase.VALIDATION, Phase.SERVICE, Phase.REPOSITORY, Phase.SERIALIZATION};
+
+	//enter вне запроса и во вложенном вызове - exit ничего не прибавит
+	private static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private static final int MAX_SPAN_DEPTH = 16;
+
+	//состояние запроса или его части, выполняемой в другом потоке (parent != null).
+	//Меняется только потоком, к которому привязано; в родителя время части добавляется в join-потоке
+	public static final class State {
+		private final State parent;
+		private final Trace trace;
+		private final boolean sampled;
+		private final long started;
+		private final long[] nanos = new long[Phase.values().length];
+		private final int[] depth = new int[Phase.values().length];
+		//время частей, выполненных в других потоках (guarded by this)
+		private final long[] forked = new long[Phase.values().length];
+		private final Span base;
+		private final Span[] open = new Span[MAX_SPAN_DEPTH];
+		private int openDepth;
+
+		private State(State parent, Trace trace, long started, Span base) {
+			this.parent = parent;
+			this.trace = trace;
+			this.sampled = trace != null && trace.isSampled();
+			this.started = started;
+			this.base = base;
+		}
+
+		private void openSpan(Phase phase, Method method, long nanos) {
+			if (openDepth < MAX_SPAN_DEPTH) {
+				open[openDepth] = trace.open(openDepth == 0 ? base : open[openDepth - 1], phase, method, nanos);
+			}
+			openDepth++;
+		}
+
+		private void closeSpan(long nanos) {
+			openDepth--;
+			if (openDepth < MAX_SPAN_DEPTH) {
+				trace.close(open[openDepth], nanos);
+				open[openDepth] = null;
+			}
+		}
+
+		//span, не закрытые из-за исключения в фазе
+		private void closeSpans(long nanos) {
+			while (sampled && openDepth > 0) {
+				closeSpan(nanos);
+			}
+		}
+
+		private synchronized void merge(long[] child) {
+			for (int i = 0; i < child.length; i++) {
+				forked[i] += child[i];
+			}
+		}
+
+		private synchronized long[] forked() {
+			return forked.clone();
+		}
+	}
+
+	private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+	private RequestPhases() {
+	}
+
+	//начать запрос в этом потоке; trace - трассировка запроса (null - без нее)
+	public static State begin(Trace trace) {
+		long now = System.nanoTime();
+		if (trace != null && trace.isSampled()) {
+			trace.start(now);
+		}
+		State state = new State(null, trace, now, trace != null && trace.isSampled() ? trace.getRoot() : null);
+		CURRENT.set(state);
+		return state;
+	}
+
+	//отвязать запрос от потока (асинхронный запрос: поток контейнера освобождается)
+	public static State suspend() {
+		State state = CURRENT.get();
+		CURRENT.set(null);
+		return state;
+	}
+
+	//продолжить запрос в этом потоке
+	public static void resume(State state) {
+		CURRENT.set(state);
+	}
+
+	//часть текущего запроса для выполнения в другом потоке (null - вне запроса);
+	//ее span вкладываются в span, открытый сейчас
+	public static State fork() {
+		State state = CURRENT.get();
+		if (state == null) {
+			return null;
+		}
+		Span base = null;
+		if (state.sampled) {
+			base = state.openDepth == 0 ? state.base : state.open[Math.min(state.openDepth, MAX_SPAN_DEPTH) - 1];
+		}
+		return new State(state, state.trace, System.nanoTime(), base);
+	}
+
+	//выполнять часть запроса в этом потоке (время от fork до join - ожидание в очереди);
+	//возвращает прежнее состояние потока для leave
+	public static State join(State part) {
+		State previous = CURRENT.get();
+		part.nanos[Phase.QUEUE.ordinal()] = System.nanoTime() - part.started;
+		CURRENT.set(part);
+		if (part.trace != null) {
+			MDC.put(RequestMetricsInterceptor.TRACE_ID_MDC_KEY, part.trace.getTraceId());
+		}
+		return previous;
+	}
+
+	//часть выполнена: время добавляется к запросу, поток возвращается к прежнему состоянию
+	public static void leave(State part, State previous) {
+		part.closeSpans(System.nanoTime());
+		part.parent.merge(part.nanos);
+		CURRENT.set(previous);
+		if (part.trace != null) {
+			MDC.remove(RequestMetricsInterceptor.TRACE_ID_MDC_KEY);
+		}
+	}
+
+	public static long enter(Phase phase) {
+		return enter(phase, null);
+	}
+
+	//method - вызываемый метод (имя span), null - имя по фазе
+	public static long enter(Phase phase, Method method) {
+		State state = CURRENT.get();
+		if (state == null || state.depth[phase.ordinal()]++ > 0) {
+			return NOT_TIMED;
+		}
+		long started = System.nanoTime();
+		if (state.sampled) {
+			state.openSpan(phase, method, started);
+		}
+		return started;
+	}
+
+	public static void exit(Phase phase, long started) {
+		State state = CURRENT.get();
+		if (state == null) {
+			return;
+		}
+		if (started == NOT_TIMED) {
+			if (state.depth[phase.ordinal()] > 0) {
+				state.depth[phase.ordinal()]--;
+			}
+			return;
+		}
+		long finished = System.nanoTime();
+		state.depth[phase.ordinal()]--;
+		state.nanos[phase.ordinal()] += finished - started;
+		if (state.sampled) {
+			state.closeSpan(finished);
+		}
+	}
+
+	//завершить запрос этого потока: в phases (по ordinal) - время по фазам BREAKDOWN, возвращает общее время.
+	//Сервис считается без вложенного в него репозитория, проверки - метод контроллера без сервиса,
+	//очередь - ожидание пула запросов, разбор запроса - остальное (Spring MVC: привязка параметров, чтение тела,
+	//асинхронная передача результата)
+	public static long end(long[] phases) {
+		State state = CURRENT.get();
+		CURRENT.set(null);
+		if (state == null) {
+			Arrays.fill(phases, 0);
+			return 0;
+		}
+		long finished = System.nanoTime();
+		long total = finished - state.started;
+		if (state.sampled) {
+			state.closeSpans(finished);
+			state.trace.finish(finished);
+		}
+		long[] nanos = state.nanos;
+		long[] forked = state.forked();
+		long controller = nanos[Phase.CONTROLLER.ordinal()];
+		long service = Math.max(nanos[Phase.SERVICE.ordinal()], nanos[Phase.REPOSITORY.ordinal()]);
+		long repository = nanos[Phase.REPOSITORY.ordinal()];
+		long forkedService = Math.max(forked[Phase.SERVICE.ordinal()], forked[Phase.REPOSITORY.ordinal()]);
+		long forkedRepository = forked[Phase.REPOSITORY.ordinal()];
+		long queue = forked[Phase.QUEUE.ordinal()];
+		long serialization = nanos[Phase.SERIALIZATION.ordinal()];
+		phases[Phase.REPOSITORY.ordinal()] = repository + forkedRepository;
+		phases[Phase.SERVICE.ordinal()] = service - repository + forkedService - forkedRepository;
+		phases[Phase.QUEUE.ordinal()] = queue;
+		phases[Phase.SERIALIZATION.ordinal()] = serialization;
+		phases[Phase.VALIDATION.ordinal()] = Math.max(0, controller - service);
+		phases[Phase.BINDING.ordinal()] = Math.max(0,
+				total - Math.max(controller, service) - forkedService - queue - serialization);
+		phases[Phase.CONTROLLER.ordinal()] = controller;
+		return total;
+	}
+}
@@ -0,0 +1,125 @@
+package com.game.metrics;
+
+import com.game.repository.PlayerFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+//журнал медленных поисков по фильтрам: последние maxEntries вызовов дольше порога с параметрами фильтра,
+//сортировкой и страницей - чтобы найти сочетания фильтров, для которых нет подходящего индекса.
+//Быстрые вызовы стоят одно сравнение
+@Component
+public class SlowQueryLog {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+	//один медленный вызов (поля отдаются в JSON как есть)
+	public static class Entry {
+		private final long at;
+		private final String operation;
+		private final long millis;
+		private final Map<String, Object> filter;
+		private final String order;
+		private final Integer pageNumber;
+		private final Integer pageSize;
+		private final long rows;
+
+		private Entry(long at, String operation, long millis, Map<String, Object> filter, String order,
+					  Integer pageNumber, Integer pageSize, long rows) {
+			this.at = at;
+			this.operation = operation;
+			this.millis = millis;
+			this.filter = filter;
+			this.order = order;
+			this.pageNumber = pageNumber;
+			this.pageSize = pageSize;
+			this.rows = rows;
+		}
+	}
+
+	private final int maxEntries;
+	private final Deque<Entry> entries = new ArrayDeque<>();
+	private volatile long thresholdNanos;
+	private long total;
+
+	public SlowQueryLog(@Value("${slowQuery.thresholdMillis:200}") long thresholdMillis,
+						@Value("${slowQuery.maxEntries:100}") int maxEntries) {
+		this.maxEntries = maxEntries;
+		setThresholdMillis(thresholdMillis);
+	}
+
+	public long getThresholdMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+	}
+
+	public void setThresholdMillis(long thresholdMillis) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	//order/pageNumber/pageSize - null для подсчета; rows - найдено (для подсчета - результат)
+	public void record(String operation, long startedNanos, PlayerFilter filter, Object order, Integer pageNumber,
+					   Integer pageSize, long rows) {
+		long nanos = System.nanoTime() - startedNanos;
+		if (nanos < thresholdNanos) {
+			return;
+		}
+		Entry entry = new Entry(System.currentTimeMillis(), operation, TimeUnit.NANOSECONDS.toMillis(nanos),
+				describe(filter), order == null ? null : order.toString(), pageNumber, pageSize, rows);
+		synchronized (this) {
+			if (entries.size() == maxEntries) {
+				entries.removeFirst();
+			}
+			entries.addLast(entry);
+			total++;
+		}
+		LOG.warn("slow {}: {} ms, filter={}, order={}, page={}/{}, rows={}", operation, entry.millis, entry.filter,
+				entry.order, pageNumber, pageSize, rows);
+	}
+
+	//последние медленные вызовы, самые новые первыми
+	public synchronized List<Entry> entries() {
+		List<Entry> result = new ArrayList<>(entries);
+		Collections.reverse(result);
+		return result;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		total = 0;
+	}
+
+	public synchronized Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("thresholdMillis", getThresholdMillis());
+		result.put("total", total);
+		result.put("entries", entries());
+		return result;
+	}
+
+	//заданные (не null) условия фильтра
+	private static Map<String, Object> describe(PlayerFilter filter) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		put(result, "name", filter.getName());
+		put(result, "title", filter.getTitle());
+		put(result, "race", filter.getRace());
+		put(result, "profession", filter.getProfession());
+		put(result, "after", filter.getAfter() == null ? null : filter.getAfter().getTime());
+		put(result, "before", filter.getBefore() == null ? null : filter.getBefore().getTime());
+		put(result, "banned", filter.getBanned());
+		put(result, "minExperience", filter.getMinExperience());
+		put(result, "maxExperience", filter.getMaxExperience());
+		put(result, "minLevel", filter.getMinLevel());
+		put(result, "maxLevel", filter.getMaxLevel());
+		return result;
+	}
+
+	private static void put(Map<String, Object> map, String key, Object value) {
+		if (value != null) {
+			map.put(key, value instanceof Enum ? ((Enum<?>) value).name() : value);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.game.metrics;
+
+import java.lang.annotation.*;
+
+//метод сервиса - проверка или подготовка данных, которую контроллер вызывает до основной работы:
+//PhaseTimingPostProcessor не открывает для него фазу SERVICE, время остается в фазе контроллера (VALIDATION)
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ValidationStep {
+}
@@ -0,0 +1,175 @@
+package com.game.profiling;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+
+//записи Java Flight Recorder по запросу: одна запись за раз, с настройками JDK (default - малые накладные
+//расходы, profile - подробнее) и нашими событиями PlayerRequest/PlayerQuery. Запись останавливается
+//сама через заданное время и сохраняется в файл в directory; хранятся последние maxRecordings файлов
+@Component
+public class JfrProfiler {
+
+	//запись и ее файл
+	private static class Entry {
+		private final jdk.jfr.Recording recording;
+		private final String profile;
+		private final File file;
+
+		private Entry(jdk.jfr.Recording recording, String profile, File file) {
+			this.recording = recording;
+			this.profile = profile;
+			this.file = file;
+		}
+	}
+
+	private final File directory;
+	private final long maxDurationSeconds;
+	private final int maxRecordings;
+	private final Map<Long, Entry> recordings = new LinkedHashMap<>();
+
+	public JfrProfiler(@Value("${jfr.directory:jfr}") String directory,
+					   @Value("${jfr.maxDurationSeconds:600}") long maxDurationSeconds,
+					   @Value("${jfr.maxRecordings:5}") int maxRecordings) {
+		this.directory = new File(directory);
+		this.maxDurationSeconds = maxDurationSeconds;
+		this.maxRecordings = maxRecordings;
+	}
+
+	public boolean isAvailable() {
+		return JfrSupport.AVAILABLE;
+	}
+
+	public long getMaxDurationSeconds() {
+		return maxDurationSeconds;
+	}
+
+	//начать запись; IllegalArgumentException - нет такого профиля, IllegalStateException - уже идет запись
+	public synchronized Map<String, Object> start(String profile, long durationSeconds) throws IOException {
+		for (Entry entry : recordings.values()) {
+			if (entry.recording.getState() == jdk.jfr.RecordingState.RUNNING) {
+				throw new IllegalStateException("recording " + entry.recording.getId() + " is running");
+			}
+		}
+		jdk.jfr.Configuration configuration;
+		try {
+			configuration = jdk.jfr.Configuration.getConfiguration(profile);
+		} catch (java.text.ParseException | java.nio.file.NoSuchFileException e) {
+			throw new IllegalArgumentException("unknown profile: " + profile);
+		}
+		removeOldest();
+		directory.mkdirs();
+		jdk.jfr.Recording recording = new jdk.jfr.Recording(configuration);
+		File file = new File(directory, "rpg-" + recording.getId() + ".jfr");
+		recording.setName("rpg-" + recording.getId());
+		recording.enable(PlayerRequestEvent.NAME);
+		recording.enable(PlayerQueryEvent.NAME);
+		recording.setToDisk(true);
+		recording.setDestination(file.toPath());
+		recording.setDuration(Duration.ofSeconds(durationSeconds));
+		recording.start();
+		Entry entry = new Entry(recording, profile, file);
+		recordings.put(recording.getId(), entry);
+		return describe(entry);
+	}
+
+	//остановить запись (файл записывается при остановке); null - нет такой записи
+	public synchronized Map<String, Object> stop(long id) {
+		Entry entry = recordings.get(id);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.recording.getState() == jdk.jfr.RecordingState.RUNNING
+				|| entry.recording.getState() == jdk.jfr.RecordingState.DELAYED) {
+			entry.recording.stop();
+		}
+		return describe(entry);
+	}
+
+	//записать файл записи в out: для идущей записи - снимок накопленного на этот момент;
+	//false - нет такой записи или она еще не сохранена
+	public boolean write(long id, OutputStream out) throws IOException {
+		File file;
+		boolean snapshot;
+		synchronized (this) {
+			Entry entry = recordings.get(id);
+			if (entry == null) {
+				return false;
+			}
+			snapshot = entry.recording.getState() == jdk.jfr.RecordingState.RUNNING;
+			if (snapshot) {
+				file = File.createTempFile("rpg-" + id + "-", ".jfr", directory);
+				entry.recording.dump(file.toPath());
+			} else if (entry.file.exists()) {
+				file = entry.file;
+			} else {
+				return false;
+			}
+		}
+		try {
+			Files.copy(file.toPath(), out);
+		} finally {
+			if (snapshot) {
+				file.delete();
+			}
+		}
+		return true;
+	}
+
+	public synchronized boolean delete(long id) {
+		Entry entry = recordings.remove(id);
+		if (entry == null) {
+			return false;
+		}
+		entry.recording.close();
+		entry.file.delete();
+		return true;
+	}
+
+	public synchronized List<Map<String, Object>> list() {
+		List<Map<String, Object>> result = new ArrayList<>();
+		for (Entry entry : recordings.values()) {
+			result.add(describe(entry));
+		}
+		return result;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		for (Entry entry : recordings.values()) {
+			entry.recording.close();
+		}
+	}
+
+	private void removeOldest() {
+		Iterator<Map.Entry<Long, Entry>> iterator = recordings.entrySet().iterator();
+		while (recordings.size() >= maxRecordings && iterator.hasNext()) {
+			Entry entry = iterator.next().getValue();
+			entry.recording.close();
+			entry.file.delete();
+			iterator.remove();
+		}
+	}
+
+	private static Map<String, Object> describe(Entry entry) {
+		jdk.jfr.Recording recording = entry.recording;
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("id", recording.getId());
+		result.put("name", recording.getName());
+		result.put("profile", entry.profile);
+		result.put("state", recording.getState().name());
+		result.put("start", recording.getStartTime() == null ? null : recording.getStartTime().toEpochMilli());
+		result.put("stop", recording.getStopTime() == null ? null : recording.getStopTime().toEpochMilli());
+		result.put("durationSeconds", recording.getDuration() == null ? null : recording.getDuration().getSeconds());
+		result.put("file", entry.file.getAbsolutePath());
+		result.put("fileSize", entry.file.exists() ? entry.file.length() : 0);
+		return result;
+	}
+}
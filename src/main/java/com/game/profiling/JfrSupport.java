@@ -0,0 +1,20 @@
+package com.game.profiling;
+
+//есть ли в JVM Flight Recorder (jdk.jfr: JDK 11+ и 8u262+). Классы событий загружаются только если есть,
+//поэтому вызывающий код проверяет AVAILABLE до обращения к PlayerJfrEvents
+public final class JfrSupport {
+
+	public static final boolean AVAILABLE = isAvailable();
+
+	private JfrSupport() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return jdk.jfr.FlightRecorder.isAvailable();
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.game.profiling;
+
+import com.game.metrics.RequestMetricsInterceptor;
+import com.game.repository.PlayerFilter;
+import jdk.jfr.EventType;
+import org.slf4j.MDC;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+
+//создание событий JFR для запросов и вызовов репозитория. Пока нет записи с этими событиями,
+//begin* возвращает null и ничего не создается. Вызывать только при JfrSupport.AVAILABLE
+public final class PlayerJfrEvents {
+
+	private static final EventType REQUEST = EventType.getEventType(PlayerRequestEvent.class);
+	private static final EventType QUERY = EventType.getEventType(PlayerQueryEvent.class);
+
+	private PlayerJfrEvents() {
+	}
+
+	public static Object beginRequest() {
+		if (!REQUEST.isEnabled()) {
+			return null;
+		}
+		PlayerRequestEvent event = new PlayerRequestEvent();
+		event.begin();
+		return event;
+	}
+
+	public static void endRequest(Object started, String endpoint, String query, int status) {
+		PlayerRequestEvent event = (PlayerRequestEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.endpoint = endpoint;
+			event.query = query;
+			event.status = status;
+			event.traceId = MDC.get(RequestMetricsInterceptor.TRACE_ID_MDC_KEY);
+			event.commit();
+		}
+	}
+
+	public static Object beginQuery() {
+		if (!QUERY.isEnabled()) {
+			return null;
+		}
+		PlayerQueryEvent event = new PlayerQueryEvent();
+		event.begin();
+		return event;
+	}
+
+	//args - аргументы метода репозитория (фильтр берется из PlayerFilter среди них), result - его результат
+	public static void endQuery(Object started, Method method, Object[] args, Object result) {
+		PlayerQueryEvent event = (PlayerQueryEvent) started;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+			for (Object arg : args) {
+				if (arg instanceof PlayerFilter) {
+					event.filter = arg.toString();
+				}
+			}
+			event.rows = rows(result);
+			event.traceId = MDC.get(RequestMetricsInterceptor.TRACE_ID_MDC_KEY);
+			event.commit();
+		}
+	}
+
+	private static long rows(Object result) {
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof Slice) {
+			return ((Slice<?>) result).getNumberOfElements();
+		}
+		if (result instanceof Optional) {
+			return ((Optional<?>) result).isPresent() ? 1 : 0;
+		}
+		if (result instanceof Number) {
+			return ((Number) result).longValue();
+		}
+		return result == null ? 0 : 1;
+	}
+}
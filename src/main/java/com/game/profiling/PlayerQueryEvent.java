@@ -0,0 +1,30 @@
+package com.game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//вызов репозитория игроков: метод, фильтр поиска и число строк результата
+@Name(PlayerQueryEvent.NAME)
+@Label("Player Query")
+@Description("PlayerRepository call")
+@Category({"RPG", "Repository"})
+@StackTrace(false)
+public class PlayerQueryEvent extends jdk.jfr.Event {
+	public static final String NAME = "com.game.PlayerQuery";
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Filter")
+	String filter;
+
+	@Label("Rows")
+	@Description("Rows returned, count result or rows changed")
+	long rows;
+
+	@Label("Trace Id")
+	String traceId;
+}
@@ -0,0 +1,30 @@
+package com.game.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//запрос к REST: длительность события - от разбора параметров до записи ответа
+@Name(PlayerRequestEvent.NAME)
+@Label("Player Request")
+@Description("REST request handled by a controller of the rpg application")
+@Category({"RPG", "Requests"})
+@StackTrace(false)
+public class PlayerRequestEvent extends jdk.jfr.Event {
+	public static final String NAME = "com.game.PlayerRequest";
+
+	@Label("Endpoint")
+	String endpoint;
+
+	@Label("Query")
+	@Description("Query string with filter parameters")
+	String query;
+
+	@Label("Status")
+	int status;
+
+	@Label("Trace Id")
+	String traceId;
+}
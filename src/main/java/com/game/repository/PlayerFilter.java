@@ -0,0 +1,114 @@
+package com.game.repository;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.Collection;
+import java.util.Date;
+
+//набор фильтров поиска игроков; null означает, что фильтр не задан
+public class PlayerFilter {
+
+	private final String name;
+	private final String title;
+	private final Race race;
+	private final Profession profession;
+	private final Date after;
+	private final Date before;
+	private final Boolean banned;
+	private final Integer minExperience;
+	private final Integer maxExperience;
+	private final Integer minLevel;
+	private final Integer maxLevel;
+	private Collection<Long> ids;
+
+	public PlayerFilter(String name, String title, Race race, Profession profession, Date after, Date before,
+						Boolean banned, Integer minExperience, Integer maxExperience, Integer minLevel,
+						Integer maxLevel) {
+		this.name = name;
+		this.title = title;
+		this.race = race;
+		this.profession = profession;
+		this.after = after;
+		this.before = before;
+		this.banned = banned;
+		this.minExperience = minExperience;
+		this.maxExperience = maxExperience;
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public Race getRace() {
+		return race;
+	}
+
+	public Profession getProfession() {
+		return profession;
+	}
+
+	public Date getAfter() {
+		return after;
+	}
+
+	public Date getBefore() {
+		return before;
+	}
+
+	public Boolean getBanned() {
+		return banned;
+	}
+
+	public Integer getMinExperience() {
+		return minExperience;
+	}
+
+	public Integer getMaxExperience() {
+		return maxExperience;
+	}
+
+	public Integer getMinLevel() {
+		return minLevel;
+	}
+
+	public Integer getMaxLevel() {
+		return maxLevel;
+	}
+
+	//ограничение поиска заранее найденными id (например, кандидатами из индекса по имени)
+	public Collection<Long> getIds() {
+		return ids;
+	}
+
+	public PlayerFilter withIds(Collection<Long> ids) {
+		PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before, banned,
+				minExperience, maxExperience, minLevel, maxLevel);
+		filter.ids = ids;
+		return filter;
+	}
+
+	@Override
+	public String toString() {
+		return "PlayerFilter{" +
+				"name=" + name +
+				", title=" + title +
+				", race=" + race +
+				", profession=" + profession +
+				", after=" + (after == null ? null : after.getTime()) +
+				", before=" + (before == null ? null : before.getTime()) +
+				", banned=" + banned +
+				", minExperience=" + minExperience +
+				", maxExperience=" + maxExperience +
+				", minLevel=" + minLevel +
+				", maxLevel=" + maxLevel +
+				(ids == null ? "" : ", ids=" + ids.size()) +
+				'}';
+	}
+}
@@ -0,0 +1,117 @@
+package com.game.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+//выдача id игроков блоками из таблицы player_seq (аналог pooled-lo): одно обращение к базе на блок.
+//Блок резервируется в отдельной транзакции на своем соединении, поэтому откат вставки id не возвращает.
+//По той же причине id нужно брать до открытия транзакции вставки (withNextId/withReserved): иначе при
+//исчерпании блока поток держит соединение из пула и ждет второе, и при занятом пуле вставки встают.
+@Component
+public class PlayerIdAllocator {
+
+	private final DataSource dataSource;
+	private final int blockSize;
+
+	//guarded by blockLock
+	private final ReentrantLock blockLock = new ReentrantLock();
+	private long next;
+	private long limit;
+
+	//зарезервированный под текущую пакетную вставку диапазон [0] - следующий id, [1] - граница
+	private final ThreadLocal<long[]> reserved = new ThreadLocal<>();
+
+	public PlayerIdAllocator(DataSource dataSource, @Value("${id.player.blockSize:50}") int blockSize) {
+		this.dataSource = dataSource;
+		this.blockSize = blockSize;
+	}
+
+	public long next() {
+		long[] range = reserved.get();
+		if (range != null && range[0] < range[1]) {
+			return range[0]++;
+		}
+		blockLock.lock();
+		try {
+			if (next >= limit) {
+				next = reserve(blockSize);
+				limit = next + blockSize;
+			}
+			return next++;
+		} finally {
+			blockLock.unlock();
+		}
+	}
+
+	//выполнить action, выдавая id этого потока из одного заранее зарезервированного блока на count id
+	public <T> T withReserved(int count, Supplier<T> action) {
+		long low = reserve(count);
+		reserved.set(new long[]{low, low + count});
+		try {
+			return action.get();
+		} finally {
+			reserved.remove();
+		}
+	}
+
+	//выполнить action, выдав id этого потока из общего блока заранее (до того, как action займет соединение)
+	public <T> T withNextId(Supplier<T> action) {
+		long id = next();
+		reserved.set(new long[]{id, id + 1});
+		try {
+			return action.get();
+		} finally {
+			reserved.remove();
+		}
+	}
+
+	//сбросить выданный блок (следующий id будет взят из player_seq)
+	public void reset() {
+		blockLock.lock();
+		try {
+			next = 0;
+			limit = 0;
+		} finally {
+			blockLock.unlock();
+		}
+	}
+
+	private long reserve(int count) {
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				long low;
+				try (PreparedStatement select = connection.prepareStatement("SELECT next_val FROM player_seq FOR UPDATE");
+					 ResultSet resultSet = select.executeQuery()) {
+					if (!resultSet.next()) {
+						throw new DataAccessResourceFailureException("player_seq is empty");
+					}
+					low = resultSet.getLong(1);
+				}
+				try (PreparedStatement update = connection.prepareStatement("UPDATE player_seq SET next_val = ?")) {
+					update.setLong(1, low + count);
+					update.executeUpdate();
+				}
+				connection.commit();
+				return low;
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataAccessResourceFailureException("Could not reserve player ids", e);
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package com.game.repository;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+//генератор id для Player, берет значения у PlayerIdAllocator (передается в настройках JPA из AppConfig)
+public class PlayerIdGenerator implements IdentifierGenerator, Configurable {
+
+	public static final String ALLOCATOR_SETTING = "com.game.playerIdAllocator";
+
+	private PlayerIdAllocator allocator;
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+		Object setting = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ALLOCATOR_SETTING);
+		if (!(setting instanceof PlayerIdAllocator)) {
+			throw new MappingException("JPA property " + ALLOCATOR_SETTING + " must hold a PlayerIdAllocator");
+		}
+		allocator = (PlayerIdAllocator) setting;
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) {
+		return allocator.next();
+	}
+}
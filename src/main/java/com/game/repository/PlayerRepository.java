@@ -1,73 +1,45 @@
 package com.game.repository;
 
 import com.game.entity.Player;
-import com.game.entity.Profession;
-import com.game.entity.Race;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
 
+//поиск и подсчет по фильтрам - в PlayerRepositoryCustom
 @Repository
 @Transactional
-public interface PlayerRepository extends PagingAndSortingRepository<Player, Long> {
+public interface PlayerRepository extends PagingAndSortingRepository<Player, Long>, PlayerRepositoryCustom {
 
-	//поиск по фильтрам
-	@Query("select pl from Player pl where " +
-			"(:name is null or pl.name like concat('%',:name,'%')) and " +
-			"(:title is null or pl.title like concat('%',:title,'%')) and " +
-			"(:race is null or pl.race = :race) and " +
-			"(:profession is null or pl.profession = :profession) and " +
-			"(:after is null or pl.birthday >= :after) and " +
-			"(:before is null or pl.birthday <= :before) and " +
-			"(:banned is null or pl.banned = :banned) and " +
-			"(:minExperience is null or pl.experience >= :minExperience) and " +
-			"(:maxExperience is null or pl.experience <= :maxExperience) and " +
-			"(:minLevel is null or pl.level >= :minLevel) and " +
-			"(:maxLevel is null or pl.level <= :maxLevel)")
-	List<Player> findAllByParams(
-			@Param("name") String name,
-			@Param("title") String title,
-			@Param("race") Race race,
-			@Param("profession") Profession profession,
-			@Param("after") Date after,
-			@Param("before") Date Before,
-			@Param("banned") Boolean banned,
-			@Param("minExperience") Integer minExperience,
-			@Param("maxExperience") Integer maxExperience,
-			@Param("minLevel") Integer minLevel,
-			@Param("maxLevel") Integer maxLevel,
-			Pageable pageable);
+	//id, имя и титул всех игроков по возрастанию id без загрузки сущностей (для индекса поиска по подстроке)
+	@Query("select pl.id, pl.name, pl.title from Player pl order by pl.id")
+	List<Object[]> findAllNamesAndTitles();
 
-	@Query("select pl from Player pl where " +
-			"(:name is null or pl.name like concat('%',:name,'%')) and " +
-			"(:title is null or pl.title like concat('%',:title,'%')) and " +
-			"(:race is null or pl.race = :race) and " +
-			"(:profession is null or pl.profession = :profession) and " +
-			"(:after is null or pl.birthday >= :after) and " +
-			"(:before is null or pl.birthday <= :before) and " +
-			"(:banned is null or pl.banned = :banned) and " +
-			"(:minExperience is null or pl.experience >= :minExperience) and " +
-			"(:maxExperience is null or pl.experience <= :maxExperience) and " +
-			"(:minLevel is null or pl.level >= :minLevel) and " +
-			"(:maxLevel is null or pl.level <= :maxLevel)")
-	List<Player> findAllByParamsAndCount(
-			@Param("name") String name,
-			@Param("title") String title,
-			@Param("race") Race race,
-			@Param("profession") Profession profession,
-			@Param("after") Date after,
-			@Param("before") Date Before,
-			@Param("banned") Boolean banned,
-			@Param("minExperience") Integer minExperience,
-			@Param("maxExperience") Integer maxExperience,
-			@Param("minLevel") Integer minLevel,
-			@Param("maxLevel") Integer maxLevel);
+	//удаление одним запросом, возвращает кол-во удаленных строк (0 - игрока не было)
+	@Modifying
+	@Query("delete from Player pl where pl.id = :id")
+	int deletePlayerById(@Param("id") Long id);
 
+	//начислить опыт (delta может быть отрицательной) с ограничением 0..10 000 000 и пересчетом
+	//level/untilNextLevel по формуле PlayerService.countLevel. experience присваивается последним:
+	//MySQL в SET видит уже присвоенные значения, H2 - старые, так результат одинаковый.
+	@Modifying
+	@Query(value = "update player set " +
+			"untilNextLevel = 50 * (floor((sqrt(2500 + 200 * least(greatest(experience + :delta, 0), 10000000)) - 50) / 100) + 1)" +
+			" * (floor((sqrt(2500 + 200 * least(greatest(experience + :delta, 0), 10000000)) - 50) / 100) + 2)" +
+			" - least(greatest(experience + :delta, 0), 10000000), " +
+			"level = floor((sqrt(2500 + 200 * least(greatest(experience + :delta, 0), 10000000)) - 50) / 100), " +
+			"experience = least(greatest(experience + :delta, 0), 10000000) " +
+			"where id in (:ids)", nativeQuery = true)
+	int grantExperience(@Param("ids") Collection<Long> ids, @Param("delta") int delta);
+
+	//опыт и уровень после изменения (без загрузки сущностей): id, experience, level, untilNextLevel
+	@Query("select pl.id, pl.experience, pl.level, pl.untilNextLevel from Player pl where pl.id in (:ids)")
+	List<Object[]> findExperienceByIds(@Param("ids") Collection<Long> ids);
 }
 
@@ -0,0 +1,29 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+//запросы с фильтрами, которые строятся динамически (только по заданным параметрам)
+public interface PlayerRepositoryCustom {
+
+	List<Player> findAllByFilter(PlayerFilter filter, Pageable pageable);
+
+	long countByFilter(PlayerFilter filter);
+
+	//страница после строки (lastKey, lastId) при сортировке по sortField, id; lastId == null - первая страница
+	List<Player> findAllByFilterAfter(PlayerFilter filter, String sortField, Comparable<?> lastKey, Long lastId, int limit);
+
+	//id игроков по фильтру по возрастанию, после lastId (null - с начала)
+	List<Long> findIdsByFilterAfter(PlayerFilter filter, Long lastId, int limit);
+
+	//обойти всех игроков по фильтру в порядке sort, не загружая их списком: курсор только вперед,
+	//строки читаются из базы по fetchSize, каждый игрок отсоединяется от контекста после action
+	void forEachByFilter(PlayerFilter filter, Sort sort, int fetchSize, Consumer<Player> action);
+
+	//вставка новых игроков пакетами: flush + clear каждые flushEvery сущностей (в текущей транзакции)
+	void persistAll(List<Player> players, int flushEvery);
+}
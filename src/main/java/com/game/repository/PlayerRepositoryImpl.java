@@ -0,0 +1,176 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+//реализация PlayerRepositoryCustom: в запрос попадают только те условия, которые переданы,
+//значения всегда передаются параметрами, поэтому одинаковые наборы фильтров дают один и тот же SQL
+public class PlayerRepositoryImpl implements PlayerRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Player> findAllByFilter(PlayerFilter filter, Pageable pageable) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Player> query = cb.createQuery(Player.class);
+		Root<Player> root = query.from(Player.class);
+		query.select(root).where(predicates(cb, root, filter));
+		if (pageable.getSort().isSorted()) {
+			query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+		}
+
+		TypedQuery<Player> typedQuery = entityManager.createQuery(query);
+		if (pageable.isPaged()) {
+			typedQuery.setFirstResult((int) pageable.getOffset());
+			typedQuery.setMaxResults(pageable.getPageSize());
+		}
+		return typedQuery.getResultList();
+	}
+
+	@Override
+	public long countByFilter(PlayerFilter filter) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Player> root = query.from(Player.class);
+		query.select(cb.count(root)).where(predicates(cb, root, filter));
+		return entityManager.createQuery(query).getSingleResult();
+	}
+
+	@Override
+	public List<Long> findIdsByFilterAfter(PlayerFilter filter, Long lastId, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Player> root = query.from(Player.class);
+		Expression<Long> id = root.get("id");
+
+		List<Predicate> predicates = new ArrayList<>(Arrays.asList(predicates(cb, root, filter)));
+		if (lastId != null) {
+			predicates.add(cb.greaterThan(id, lastId));
+		}
+		query.select(id).where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(id));
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public void forEachByFilter(PlayerFilter filter, Sort sort, int fetchSize, Consumer<Player> action) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Player> query = cb.createQuery(Player.class);
+		Root<Player> root = query.from(Player.class);
+		query.select(root).where(predicates(cb, root, filter)).orderBy(QueryUtils.toOrders(sort, root, cb));
+
+		TypedQuery<Player> typedQuery = entityManager.createQuery(query)
+				.setHint(QueryHints.FETCH_SIZE, fetchSize)
+				.setHint(QueryHints.READ_ONLY, true);
+		try (Stream<Player> players = typedQuery.getResultStream()) {
+			players.forEach(player -> {
+				action.accept(player);
+				entityManager.detach(player);
+			});
+		}
+	}
+
+	@Override
+	public void persistAll(List<Player> players, int flushEvery) {
+		for (int i = 0; i < players.size(); i++) {
+			entityManager.persist(players.get(i));
+			if ((i + 1) % flushEvery == 0) {
+				entityManager.flush();
+				entityManager.clear();
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Override
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public List<Player> findAllByFilterAfter(PlayerFilter filter, String sortField, Comparable<?> lastKey,
+											 Long lastId, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Player> query = cb.createQuery(Player.class);
+		Root<Player> root = query.from(Player.class);
+		Expression<Long> id = root.get("id");
+		boolean byId = "id".equals(sortField);
+
+		List<Predicate> predicates = new ArrayList<>(Arrays.asList(predicates(cb, root, filter)));
+		if (lastId != null) {
+			if (byId) {
+				predicates.add(cb.greaterThan(id, lastId));
+			} else {
+				//(key, id) > (lastKey, lastId) в виде, который понимает JPQL
+				Expression key = root.get(sortField);
+				Comparable last = lastKey;
+				predicates.add(cb.or(
+						cb.greaterThan(key, last),
+						cb.and(cb.equal(key, last), cb.greaterThan(id, lastId))));
+			}
+		}
+		query.select(root).where(predicates.toArray(new Predicate[0]));
+		if (byId) {
+			query.orderBy(cb.asc(id));
+		} else {
+			query.orderBy(cb.asc(root.get(sortField)), cb.asc(id));
+		}
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	//общие условия для выборки и подсчета
+	static Predicate[] predicates(CriteriaBuilder cb, Root<Player> root, PlayerFilter filter) {
+		List<Predicate> predicates = new ArrayList<>();
+		if (filter.getIds() != null) {
+			predicates.add(root.get("id").in(filter.getIds()));
+		}
+		if (filter.getName() != null) {
+			predicates.add(cb.like(root.get("name"), "%" + filter.getName() + "%"));
+		}
+		if (filter.getTitle() != null) {
+			predicates.add(cb.like(root.get("title"), "%" + filter.getTitle() + "%"));
+		}
+		if (filter.getRace() != null) {
+			predicates.add(cb.equal(root.get("race"), filter.getRace()));
+		}
+		if (filter.getProfession() != null) {
+			predicates.add(cb.equal(root.get("profession"), filter.getProfession()));
+		}
+		if (filter.getAfter() != null) {
+			predicates.add(cb.greaterThanOrEqualTo(root.get("birthday"), filter.getAfter()));
+		}
+		if (filter.getBefore() != null) {
+			predicates.add(cb.lessThanOrEqualTo(root.get("birthday"), filter.getBefore()));
+		}
+		if (filter.getBanned() != null) {
+			predicates.add(cb.equal(root.get("banned"), filter.getBanned()));
+		}
+		if (filter.getMinExperience() != null) {
+			predicates.add(cb.greaterThanOrEqualTo(root.get("experience"), filter.getMinExperience()));
+		}
+		if (filter.getMaxExperience() != null) {
+			predicates.add(cb.lessThanOrEqualTo(root.get("experience"), filter.getMaxExperience()));
+		}
+		if (filter.getMinLevel() != null) {
+			predicates.add(cb.greaterThanOrEqualTo(root.get("level"), filter.getMinLevel()));
+		}
+		if (filter.getMaxLevel() != null) {
+			predicates.add(cb.lessThanOrEqualTo(root.get("level"), filter.getMaxLevel()));
+		}
+		return predicates.toArray(new Predicate[0]);
+	}
+}
@@ -0,0 +1,49 @@
+package com.game.service;
+
+//результат обработки одного элемента пакетного запроса
+public class BulkItemResult {
+
+	public enum Status {
+		CREATED, INVALID, FAILED
+	}
+
+	private final int index;
+	private final Status status;
+	private final Long id;
+	private final String error;
+
+	public BulkItemResult(int index, Status status, Long id, String error) {
+		this.index = index;
+		this.status = status;
+		this.id = id;
+		this.error = error;
+	}
+
+	public static BulkItemResult created(int index, Long id) {
+		return new BulkItemResult(index, Status.CREATED, id, null);
+	}
+
+	public static BulkItemResult invalid(int index, String error) {
+		return new BulkItemResult(index, Status.INVALID, null, error);
+	}
+
+	public static BulkItemResult failed(int index, String error) {
+		return new BulkItemResult(index, Status.FAILED, null, error);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getError() {
+		return error;
+	}
+}
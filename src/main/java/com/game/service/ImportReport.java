@@ -0,0 +1,89 @@
+package com.game.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//итог загрузки игроков: счетчики и ошибки по номерам строк (не больше maxErrors, остальные только считаются)
+public class ImportReport {
+
+	//ошибка в одной строке файла
+	public static class LineError {
+		private final long line;
+		private final String error;
+
+		public LineError(long line, String error) {
+			this.line = line;
+			this.error = error;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getError() {
+			return error;
+		}
+	}
+
+	private final transient int maxErrors;
+	private long total;
+	private long created;
+	private long invalid;
+	private long failed;
+	private boolean errorsTruncated;
+	private final List<LineError> errors = new ArrayList<>();
+
+	public ImportReport(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	synchronized void record() {
+		total++;
+	}
+
+	synchronized void created() {
+		created++;
+	}
+
+	synchronized void invalid(long line, String error) {
+		invalid++;
+		error(line, error);
+	}
+
+	synchronized void failed(long line, String error) {
+		failed++;
+		error(line, error);
+	}
+
+	private void error(long line, String error) {
+		if (errors.size() < maxErrors) {
+			errors.add(new LineError(line, error));
+		} else {
+			errorsTruncated = true;
+		}
+	}
+
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	public synchronized long getCreated() {
+		return created;
+	}
+
+	public synchronized long getInvalid() {
+		return invalid;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	public synchronized boolean isErrorsTruncated() {
+		return errorsTruncated;
+	}
+
+	public synchronized List<LineError> getErrors() {
+		return new ArrayList<>(errors);
+	}
+}
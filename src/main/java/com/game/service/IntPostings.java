@@ -0,0 +1,60 @@
+package com.game.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+//отсортированный набор int без упаковки в Integer: номера строк/кодов, в которых встречается n-грамма
+final class IntPostings {
+
+	private int[] values = new int[4];
+	private int size;
+
+	int size() {
+		return size;
+	}
+
+	int get(int index) {
+		return values[index];
+	}
+
+	void add(int value) {
+		//при загрузке и для новых строк значение - наибольшее, вставка в конец
+		int position = size == 0 || values[size - 1] < value ? size : Arrays.binarySearch(values, 0, size, value);
+		if (position >= 0 && position < size) {
+			return;
+		}
+		if (position < 0) {
+			position = -position - 1;
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size + (size >> 1) + 1);
+		}
+		System.arraycopy(values, position, values, position + 1, size - position);
+		values[position] = value;
+		size++;
+	}
+
+	boolean remove(int value) {
+		int position = Arrays.binarySearch(values, 0, size, value);
+		if (position < 0) {
+			return false;
+		}
+		System.arraycopy(values, position + 1, values, position, size - position - 1);
+		size--;
+		return true;
+	}
+
+	boolean contains(int value) {
+		return Arrays.binarySearch(values, 0, size, value) >= 0;
+	}
+
+	//value есть во всех списках, кроме первого (по первому идет перебор)
+	static boolean containsAll(List<IntPostings> lists, int value) {
+		for (int i = 1; i < lists.size(); i++) {
+			if (!lists.get(i).contains(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
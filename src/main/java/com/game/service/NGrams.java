@@ -0,0 +1,71 @@
+package com.game.service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+//n-граммы и шаблоны like для поиска по подстроке в name/title
+final class NGrams {
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	private NGrams() {
+	}
+
+	//свертка не строже коллации *_ci столбца в MySQL: без регистра, ё = е, буквы с диакритикой = базовые (é = e).
+	//Свертка может склеить больше, чем база (й = и), - индекс тогда вернет лишних кандидатов, их отсеет like в запросе
+	static String fold(String value) {
+		if (value == null) {
+			return "";
+		}
+		String lower = value.toLowerCase(Locale.ROOT).replace('ё', 'е');
+		return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+	}
+
+	//n-граммы для поиска: триграммы, если фрагмент длиннее двух символов, иначе сам фрагмент
+	static Set<String> grams(String needle) {
+		if (needle.length() < 3) {
+			return Collections.singleton(needle);
+		}
+		Set<String> result = new HashSet<>();
+		for (int i = 0; i + 3 <= needle.length(); i++) {
+			result.add(needle.substring(i, i + 3));
+		}
+		return result;
+	}
+
+	//все би- и триграммы значения для индексации
+	static Set<String> allGrams(String value) {
+		Set<String> result = new HashSet<>();
+		for (int n = 2; n <= 3; n++) {
+			for (int i = 0; i + n <= value.length(); i++) {
+				result.add(value.substring(i, i + n));
+			}
+		}
+		return result;
+	}
+
+	//в запросе фрагмент уходит в like как есть, и % и _ в нем - шаблон, а \ - экранирование, а не символы
+	static boolean hasLikeWildcards(String fragment) {
+		return fragment.indexOf('%') >= 0 || fragment.indexOf('_') >= 0 || fragment.indexOf('\\') >= 0;
+	}
+
+	//like '%fragment%' как регулярное выражение для find(): % - любая строка, _ - любой символ, \x - сам x
+	static Pattern likePattern(String fragment) {
+		StringBuilder regex = new StringBuilder();
+		for (int i = 0; i < fragment.length(); i++) {
+			char c = fragment.charAt(i);
+			if (c == '%') {
+				regex.append(".*");
+			} else if (c == '_') {
+				regex.append('.');
+			} else {
+				if (c == '\\' && i + 1 < fragment.length()) {
+					c = fragment.charAt(++i);
+				}
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+}
@@ -0,0 +1,91 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.repository.PlayerRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+//кэш игроков по id перед PlayerRepository.findById: ограничен по размеру и времени жизни,
+//отсутствие игрока тоже кэшируется (короче), чтобы повторные 404 не ходили в базу
+@Component
+public class PlayerCache {
+
+	private final PlayerRepository playerRepository;
+	private final boolean enabled;
+	private final Cache<Long, Optional<Player>> cache;
+
+	public PlayerCache(PlayerRepository playerRepository,
+					   @Value("${cache.player.enabled:true}") boolean enabled,
+					   @Value("${cache.player.maxSize:10000}") long maxSize,
+					   @Value("${cache.player.ttlSeconds:60}") long ttlSeconds,
+					   @Value("${cache.player.negativeTtlSeconds:5}") long negativeTtlSeconds) {
+		this.playerRepository = playerRepository;
+		this.enabled = enabled;
+		long ttl = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		long negativeTtl = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new Expiry<Long, Optional<Player>>() {
+					@Override
+					public long expireAfterCreate(Long id, Optional<Player> player, long currentTime) {
+						return player.isPresent() ? ttl : negativeTtl;
+					}
+
+					@Override
+					public long expireAfterUpdate(Long id, Optional<Player> player, long currentTime, long currentDuration) {
+						return player.isPresent() ? ttl : negativeTtl;
+					}
+
+					@Override
+					public long expireAfterRead(Long id, Optional<Player> player, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	//игрок из кэша, при промахе - из базы (загрузка одного id выполняется один раз)
+	public Optional<Player> get(Long id) {
+		if (!enabled) {
+			return playerRepository.findById(id);
+		}
+		return cache.get(id, playerRepository::findById);
+	}
+
+	public void putMissing(Long id) {
+		if (enabled) {
+			cache.put(id, Optional.empty());
+		}
+	}
+
+	public void invalidate(Long id) {
+		cache.invalidate(id);
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public Map<String, Object> snapshot() {
+		CacheStats stats = cache.stats();
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("enabled", enabled);
+		result.put("size", cache.estimatedSize());
+		result.put("hits", stats.hitCount());
+		result.put("misses", stats.missCount());
+		result.put("hitRate", stats.hitRate());
+		result.put("evictions", stats.evictionCount());
+		result.put("loadMeanMicros", TimeUnit.NANOSECONDS.toMicros((long) stats.averageLoadPenalty()));
+		return result;
+	}
+}
@@ -0,0 +1,767 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.entity.PlayerOrder;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+//колоночный снимок таблицы player для ответов на поиск/подсчет по фильтрам без запроса в базу.
+//race/profession/banned - битовые множества, experience/level/birthday - примитивные колонки
+//с лениво построенными отсортированными перестановками, name/title - словарное кодирование.
+//Строки дописываются в порядке прихода; порядок по id - тоже перестановка (id из блоков PlayerIdAllocator
+//и коммиты приходят не по возрастанию), поиск строки по id - бинарный по ней. Запись переставляет в каждой
+//построенной перестановке только свою строку, полная сортировка бывает лишь при первом обращении к порядку.
+//Снимок загружается из базы при первом обращении и дальше обновляется PlayerService после коммита.
+//Сортировка по name - String.compareTo (как в H2 по умолчанию), а не коллация MySQL:
+//при utf8mb4_unicode_ci порядок имен, отличающихся регистром или диакритикой, может не совпасть с базой.
+@Component
+public class PlayerColumnStore {
+
+	private static final int LOAD_CHUNK = 10_000;
+
+	//изменение, пришедшее после коммита; false - снимок пора перечитать
+	private interface Change {
+		boolean apply(Columns columns);
+	}
+
+	private final PlayerRepository playerRepository;
+	private final boolean enabled;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	//одна загрузка снимка за раз (не synchronized: внутри запросы в базу)
+	private final ReentrantLock loadLock = new ReentrantLock();
+
+	//меняется под блокировкой записи. null - снимок не загружен
+	private volatile Columns columns;
+	//изменения во время загрузки (null - загрузка не идет)
+	private List<Change> pending;
+	//растет при сбросе: загрузка, начатая до сброса, свой снимок не ставит
+	private long generation;
+
+	public PlayerColumnStore(PlayerRepository playerRepository,
+							 @Value("${query.columnar.enabled:false}") boolean enabled) {
+		this.playerRepository = playerRepository;
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//страница игроков по фильтру, сортировка по order и id
+	public List<Player> find(PlayerFilter filter, PlayerOrder order, int pageNumber, int pageSize) {
+		Columns snapshot = ensureLoaded();
+		lock.readLock().lock();
+		try {
+			BitSet matched = snapshot.match(filter);
+			long skip = (long) pageNumber * pageSize;
+			List<Player> result = new ArrayList<>();
+			Permutation sorted = snapshot.sorted(order == null ? PlayerOrder.ID : order);
+			for (int i = 0; i < sorted.size && result.size() < pageSize; i++) {
+				int slot = sorted.slots[i];
+				if (matched.get(slot) && skip-- <= 0) {
+					result.add(snapshot.toPlayer(slot));
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long count(PlayerFilter filter) {
+		Columns snapshot = ensureLoaded();
+		lock.readLock().lock();
+		try {
+			return snapshot.match(filter).cardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void put(Player player) {
+		if (player.getId() == null) {
+			return;
+		}
+		//копия: сущность может поменяться, пока изменение ждет конца загрузки
+		Player row = new Player(player.getId(), player.getName(), player.getTitle(), player.getRace(),
+				player.getProfession(), player.getExperience(), player.getLevel(), player.getUntilNextLevel(),
+				player.getBirthday(), player.getBanned());
+		change(columns -> columns.put(row));
+	}
+
+	//перечитать из базы опыт и уровень игроков (после начисления опыта запросом в базе, уже после коммита).
+	//Значения берутся не из транзакции, а читаются под блокировкой записи: у параллельных начислений
+	//порядок чтения совпадает с порядком применения, и последним остается самое свежее значение
+	public void refreshExperience(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		List<Long> copy = new ArrayList<>(ids);
+		change(columns -> {
+			for (Object[] row : playerRepository.findExperienceByIds(copy)) {
+				columns.putExperience((Long) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3]);
+			}
+			return true;
+		});
+	}
+
+	public void remove(Long id) {
+		if (id == null) {
+			return;
+		}
+		change(columns -> columns.remove(id));
+	}
+
+	//сбросить снимок, он будет перечитан из базы при следующем обращении
+	public void invalidate() {
+		lock.writeLock().lock();
+		try {
+			drop();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void change(Change change) {
+		if (!enabled) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (columns != null) {
+				if (!change.apply(columns)) {
+					drop();
+				}
+			} else if (pending != null) {
+				pending.add(change);
+			}
+			//иначе загрузки еще не было - следующая прочитает уже закоммиченное изменение из базы
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//снимок читается из базы без блокировки (запись после коммита не ждет загрузку, держа соединение);
+	//изменения, пришедшие за это время, копятся в pending и применяются поверх снимка
+	//(поздний put/remove повторяет то, что уже есть в базе, - это безопасно)
+	private Columns ensureLoaded() {
+		Columns current = columns;
+		if (current != null) {
+			return current;
+		}
+		loadLock.lock();
+		try {
+			while ((current = columns) == null) {
+				long started;
+				lock.writeLock().lock();
+				try {
+					started = generation;
+					pending = new ArrayList<>();
+				} finally {
+					lock.writeLock().unlock();
+				}
+				Columns snapshot = load();
+				lock.writeLock().lock();
+				try {
+					if (generation == started) {
+						columns = snapshot;
+						for (Change change : pending) {
+							if (columns != null && !change.apply(columns)) {
+								drop();
+							}
+						}
+					}
+					pending = null;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+			return current;
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	private Columns load() {
+		Columns snapshot = new Columns();
+		PlayerFilter all = new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null);
+		Long lastId = null;
+		List<Player> chunk;
+		do {
+			chunk = playerRepository.findAllByFilterAfter(all, PlayerOrder.ID.getFieldName(), lastId, lastId, LOAD_CHUNK);
+			for (Player player : chunk) {
+				snapshot.put(player);
+				lastId = player.getId();
+			}
+		} while (chunk.size() == LOAD_CHUNK);
+		return snapshot;
+	}
+
+	//сброшенный снимок больше не меняется: читатели, уже взявшие его, дочитывают согласованное состояние
+	private void drop() {
+		columns = null;
+		generation++;
+	}
+
+	//колонки одного снимка: меняются под блокировкой записи, читаются под блокировкой чтения
+	private static final class Columns {
+		private final ReentrantLock sortLock = new ReentrantLock();
+
+		private int size;
+		private int deleted;
+		private long[] ids;
+		private int[] experience;
+		private int[] level;
+		private int[] untilNextLevel;
+		private long[] birthday;
+		private int[] nameCodes;
+		private int[] titleCodes;
+		private byte[] raceCodes;
+		private byte[] professionCodes;
+		private final BitSet live = new BitSet();
+		private final BitSet banned = new BitSet();
+		private final BitSet[] races = new BitSet[Race.values().length];
+		private final BitSet[] professions = new BitSet[Profession.values().length];
+		private final Dictionary names = new Dictionary();
+		private final Dictionary titles = new Dictionary();
+
+		//живые строки по id - поддерживается всегда, по нему ищется строка
+		private final Permutation byId = new Permutation((a, b) -> Long.compare(ids[a], ids[b]));
+		//живые строки по (значение, id); null - еще не нужна, строится при первом обращении
+		private Permutation byExperience;
+		private Permutation byLevel;
+		private Permutation byBirthday;
+		private Permutation byName;
+
+		private Columns() {
+			int capacity = 16;
+			ids = new long[capacity];
+			experience = new int[capacity];
+			level = new int[capacity];
+			untilNextLevel = new int[capacity];
+			birthday = new long[capacity];
+			nameCodes = new int[capacity];
+			titleCodes = new int[capacity];
+			raceCodes = new byte[capacity];
+			professionCodes = new byte[capacity];
+			for (int i = 0; i < races.length; i++) {
+				races[i] = new BitSet();
+			}
+			for (int i = 0; i < professions.length; i++) {
+				professions[i] = new BitSet();
+			}
+		}
+
+		private boolean put(Player player) {
+			int slot = slotOf(player.getId());
+			if (slot < 0) {
+				//новая строка (или id, удаленный раньше: его старая строка остается мертвой)
+				slot = size++;
+				ensureCapacity(size);
+				ids[slot] = player.getId();
+				write(slot, player);
+				byId.insert(slot);
+				for (Permutation permutation : built()) {
+					permutation.insert(slot);
+				}
+			} else {
+				Permutation[] built = built();
+				for (Permutation permutation : built) {
+					permutation.remove(slot);
+				}
+				write(slot, player);
+				for (Permutation permutation : built) {
+					permutation.insert(slot);
+				}
+			}
+			return true;
+		}
+
+		private boolean putExperience(long id, int experienceValue, int levelValue, int untilNextLevelValue) {
+			int slot = slotOf(id);
+			if (slot >= 0) {
+				removeFrom(byExperience, slot);
+				removeFrom(byLevel, slot);
+				experience[slot] = experienceValue;
+				level[slot] = levelValue;
+				untilNextLevel[slot] = untilNextLevelValue;
+				insertInto(byExperience, slot);
+				insertInto(byLevel, slot);
+			}
+			return true;
+		}
+
+		private boolean remove(long id) {
+			int slot = slotOf(id);
+			if (slot >= 0) {
+				//из перестановок - пока значения строки на месте, по ним ищется ее позиция
+				byId.remove(slot);
+				for (Permutation permutation : built()) {
+					permutation.remove(slot);
+				}
+				live.clear(slot);
+				names.release(nameCodes[slot]);
+				titles.release(titleCodes[slot]);
+				deleted++;
+			}
+			return deleted <= size / 2;
+		}
+
+		private BitSet match(PlayerFilter filter) {
+			BitSet result = (BitSet) live.clone();
+			if (filter.getRace() != null) {
+				result.and(races[filter.getRace().ordinal()]);
+			}
+			if (filter.getProfession() != null) {
+				result.and(professions[filter.getProfession().ordinal()]);
+			}
+			if (filter.getBanned() != null) {
+				if (filter.getBanned()) {
+					result.and(banned);
+				} else {
+					result.andNot(banned);
+				}
+			}
+			if (filter.getMinExperience() != null || filter.getMaxExperience() != null) {
+				Permutation sorted = sorted(PlayerOrder.EXPERIENCE);
+				int from = lowerBound(sorted, experience, filter.getMinExperience() == null ? Integer.MIN_VALUE : filter.getMinExperience());
+				int to = upperBound(sorted, experience, filter.getMaxExperience() == null ? Integer.MAX_VALUE : filter.getMaxExperience());
+				result.and(slotsOf(sorted, from, to));
+			}
+			if (filter.getMinLevel() != null || filter.getMaxLevel() != null) {
+				Permutation sorted = sorted(PlayerOrder.LEVEL);
+				int from = lowerBound(sorted, level, filter.getMinLevel() == null ? Integer.MIN_VALUE : filter.getMinLevel());
+				int to = upperBound(sorted, level, filter.getMaxLevel() == null ? Integer.MAX_VALUE : filter.getMaxLevel());
+				result.and(slotsOf(sorted, from, to));
+			}
+			if (filter.getAfter() != null || filter.getBefore() != null) {
+				Permutation sorted = sorted(PlayerOrder.BIRTHDAY);
+				int from = lowerBound(sorted, birthday, filter.getAfter() == null ? Long.MIN_VALUE : filter.getAfter().getTime());
+				int to = upperBound(sorted, birthday, filter.getBefore() == null ? Long.MAX_VALUE : filter.getBefore().getTime());
+				result.and(slotsOf(sorted, from, to));
+			}
+			if (filter.getName() != null) {
+				retainCodes(result, nameCodes, names.matching(filter.getName()));
+			}
+			if (filter.getTitle() != null) {
+				retainCodes(result, titleCodes, titles.matching(filter.getTitle()));
+			}
+			return result;
+		}
+
+		//перестановки строятся под чтением, меняются только под блокировкой записи
+		private Permutation sorted(PlayerOrder order) {
+			if (order == PlayerOrder.ID) {
+				return byId;
+			}
+			sortLock.lock();
+			try {
+				switch (order) {
+					case EXPERIENCE:
+						if (byExperience == null) {
+							byExperience = build((a, b) -> Integer.compare(experience[a], experience[b]));
+						}
+						return byExperience;
+					case LEVEL:
+						if (byLevel == null) {
+							byLevel = build((a, b) -> Integer.compare(level[a], level[b]));
+						}
+						return byLevel;
+					case BIRTHDAY:
+						if (byBirthday == null) {
+							byBirthday = build((a, b) -> Long.compare(birthday[a], birthday[b]));
+						}
+						return byBirthday;
+					case NAME:
+						if (byName == null) {
+							byName = build((a, b) -> names.value(nameCodes[a]).compareTo(names.value(nameCodes[b])));
+						}
+						return byName;
+					default:
+						throw new IllegalArgumentException("Unsupported order " + order);
+				}
+			} finally {
+				sortLock.unlock();
+			}
+		}
+
+		//перестановка живых строк по значению, при равных значениях - по id
+		private Permutation build(SlotComparator byValue) {
+			Permutation permutation = new Permutation((a, b) -> {
+				int result = byValue.compare(a, b);
+				return result != 0 ? result : Long.compare(ids[a], ids[b]);
+			});
+			permutation.fill(byId, size);
+			return permutation;
+		}
+
+		//построенные перестановки по значениям (byId меняется отдельно)
+		private Permutation[] built() {
+			List<Permutation> result = new ArrayList<>(4);
+			for (Permutation permutation : new Permutation[]{byExperience, byLevel, byBirthday, byName}) {
+				if (permutation != null) {
+					result.add(permutation);
+				}
+			}
+			return result.toArray(new Permutation[0]);
+		}
+
+		private static void removeFrom(Permutation permutation, int slot) {
+			if (permutation != null) {
+				permutation.remove(slot);
+			}
+		}
+
+		private static void insertInto(Permutation permutation, int slot) {
+			if (permutation != null) {
+				permutation.insert(slot);
+			}
+		}
+
+		//строка живого игрока с этим id, -1 - нет такого
+		private int slotOf(long id) {
+			int low = 0;
+			int high = byId.size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				long midId = ids[byId.slots[mid]];
+				if (midId < id) {
+					low = mid + 1;
+				} else if (midId > id) {
+					high = mid - 1;
+				} else {
+					return byId.slots[mid];
+				}
+			}
+			return -1;
+		}
+
+		private void write(int slot, Player player) {
+			experience[slot] = player.getExperience() == null ? 0 : player.getExperience();
+			level[slot] = player.getLevel() == null ? 0 : player.getLevel();
+			untilNextLevel[slot] = player.getUntilNextLevel() == null ? 0 : player.getUntilNextLevel();
+			birthday[slot] = player.getBirthday() == null ? 0 : player.getBirthday().getTime();
+			int nameCode = names.encode(player.getName());
+			int titleCode = titles.encode(player.getTitle());
+			if (live.get(slot)) {
+				names.release(nameCodes[slot]);
+				titles.release(titleCodes[slot]);
+			}
+			nameCodes[slot] = nameCode;
+			titleCodes[slot] = titleCode;
+
+			for (BitSet bits : races) {
+				bits.clear(slot);
+			}
+			raceCodes[slot] = -1;
+			if (player.getRace() != null) {
+				races[player.getRace().ordinal()].set(slot);
+				raceCodes[slot] = (byte) player.getRace().ordinal();
+			}
+			for (BitSet bits : professions) {
+				bits.clear(slot);
+			}
+			professionCodes[slot] = -1;
+			if (player.getProfession() != null) {
+				professions[player.getProfession().ordinal()].set(slot);
+				professionCodes[slot] = (byte) player.getProfession().ordinal();
+			}
+			banned.set(slot, Boolean.TRUE.equals(player.getBanned()));
+			live.set(slot);
+		}
+
+		private Player toPlayer(int slot) {
+			return new Player(ids[slot], names.value(nameCodes[slot]), titles.value(titleCodes[slot]),
+					raceCodes[slot] < 0 ? null : Race.values()[raceCodes[slot]],
+					professionCodes[slot] < 0 ? null : Profession.values()[professionCodes[slot]],
+					experience[slot], level[slot], untilNextLevel[slot], new Date(birthday[slot]), banned.get(slot));
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity <= ids.length) {
+				return;
+			}
+			int newCapacity = Math.max(capacity, ids.length * 2);
+			ids = Arrays.copyOf(ids, newCapacity);
+			experience = Arrays.copyOf(experience, newCapacity);
+			level = Arrays.copyOf(level, newCapacity);
+			untilNextLevel = Arrays.copyOf(untilNextLevel, newCapacity);
+			birthday = Arrays.copyOf(birthday, newCapacity);
+			nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+			titleCodes = Arrays.copyOf(titleCodes, newCapacity);
+			raceCodes = Arrays.copyOf(raceCodes, newCapacity);
+			professionCodes = Arrays.copyOf(professionCodes, newCapacity);
+		}
+	}
+
+	private interface SlotComparator {
+		int compare(int a, int b);
+	}
+
+	//номера живых строк в порядке comparator (полный порядок: равных строк нет).
+	//Строка переставляется по одной: позиция ищется бинарным поиском по текущим значениям строки,
+	//поэтому remove вызывается до изменения значений, insert - после
+	private static final class Permutation {
+		private final SlotComparator comparator;
+		private int[] slots = new int[16];
+		private int size;
+
+		private Permutation(SlotComparator comparator) {
+			this.comparator = comparator;
+		}
+
+		private void insert(int slot) {
+			int position = -search(slot) - 1;
+			if (position < 0) {
+				return;
+			}
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size * 2);
+			}
+			System.arraycopy(slots, position, slots, position + 1, size - position);
+			slots[position] = slot;
+			size++;
+		}
+
+		private void remove(int slot) {
+			int position = search(slot);
+			if (position < 0) {
+				return;
+			}
+			System.arraycopy(slots, position + 1, slots, position, size - position - 1);
+			size--;
+		}
+
+		//позиция slot или -(место вставки) - 1
+		private int search(int slot) {
+			int low = 0;
+			int high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int result = comparator.compare(slots[mid], slot);
+				if (result < 0) {
+					low = mid + 1;
+				} else if (result > 0) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		//заполнить строками source (уже упорядоченными по id) и отсортировать слиянием: при равных
+		//значениях слияние сохраняет порядок по id
+		private void fill(Permutation source, int capacity) {
+			slots = Arrays.copyOf(source.slots, Math.max(16, capacity));
+			size = source.size;
+			int[] buffer = new int[slots.length];
+			for (int width = 1; width < size; width *= 2) {
+				for (int from = 0; from < size; from += 2 * width) {
+					int mid = Math.min(from + width, size);
+					int to = Math.min(from + 2 * width, size);
+					int left = from;
+					int right = mid;
+					int out = from;
+					while (left < mid && right < to) {
+						buffer[out++] = comparator.compare(slots[right], slots[left]) < 0 ? slots[right++] : slots[left++];
+					}
+					while (left < mid) {
+						buffer[out++] = slots[left++];
+					}
+					while (right < to) {
+						buffer[out++] = slots[right++];
+					}
+				}
+				int[] swap = slots;
+				slots = buffer;
+				buffer = swap;
+			}
+		}
+	}
+
+	private static void retainCodes(BitSet slots, int[] codes, BitSet matching) {
+		for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+			if (!matching.get(codes[slot])) {
+				slots.clear(slot);
+			}
+		}
+	}
+
+	private static BitSet slotsOf(Permutation sorted, int from, int to) {
+		BitSet result = new BitSet();
+		for (int i = from; i < to; i++) {
+			result.set(sorted.slots[i]);
+		}
+		return result;
+	}
+
+	//первая позиция в sorted, где значение >= min
+	private static int lowerBound(Permutation sorted, int[] column, int min) {
+		int low = 0;
+		int high = sorted.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (column[sorted.slots[mid]] < min) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	//первая позиция в sorted, где значение > max
+	private static int upperBound(Permutation sorted, int[] column, int max) {
+		int low = 0;
+		int high = sorted.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (column[sorted.slots[mid]] <= max) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int lowerBound(Permutation sorted, long[] column, long min) {
+		int low = 0;
+		int high = sorted.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (column[sorted.slots[mid]] < min) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int upperBound(Permutation sorted, long[] column, long max) {
+		int low = 0;
+		int high = sorted.size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (column[sorted.slots[mid]] <= max) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	//словарь строковых значений колонки: код -> значение; поиск по подстроке идет по словарю, а не по строкам.
+	//У кода есть счетчик строк: значение, на которое больше никто не ссылается, удаляется, код переиспользуется.
+	//Подстрока ищется по n-граммам значений; весь словарь перебирается только для фрагментов
+	//короче двух символов и шаблонов like
+	private static class Dictionary {
+		private final List<String> values = new ArrayList<>();
+		private final List<String> lowerValues = new ArrayList<>();
+		private final Map<String, Integer> codes = new HashMap<>();
+		private final Map<String, IntPostings> grams = new HashMap<>();
+		private final Deque<Integer> freeCodes = new ArrayDeque<>();
+		private int[] references = new int[16];
+
+		int encode(String value) {
+			String key = value == null ? "" : value;
+			Integer code = codes.get(key);
+			if (code == null) {
+				String lower = key.toLowerCase(Locale.ROOT);
+				if (freeCodes.isEmpty()) {
+					code = values.size();
+					values.add(key);
+					lowerValues.add(lower);
+					if (code == references.length) {
+						references = Arrays.copyOf(references, code * 2);
+					}
+				} else {
+					code = freeCodes.pop();
+					values.set(code, key);
+					lowerValues.set(code, lower);
+				}
+				codes.put(key, code);
+				for (String gram : NGrams.allGrams(lower)) {
+					grams.computeIfAbsent(gram, k -> new IntPostings()).add(code);
+				}
+			}
+			references[code]++;
+			return code;
+		}
+
+		void release(int code) {
+			if (--references[code] > 0) {
+				return;
+			}
+			for (String gram : NGrams.allGrams(lowerValues.get(code))) {
+				IntPostings list = grams.get(gram);
+				if (list != null && list.remove(code) && list.size() == 0) {
+					grams.remove(gram);
+				}
+			}
+			codes.remove(values.get(code));
+			values.set(code, null);
+			lowerValues.set(code, null);
+			freeCodes.push(code);
+		}
+
+		String value(int code) {
+			return values.get(code);
+		}
+
+		//коды значений, содержащих fragment без учета регистра (как like в MySQL с utf8mb4_unicode_ci);
+		//% и _ во фрагменте - шаблон, как в запросе
+		BitSet matching(String fragment) {
+			String needle = fragment.toLowerCase(Locale.ROOT);
+			BitSet result = new BitSet();
+			if (NGrams.hasLikeWildcards(needle)) {
+				Pattern pattern = NGrams.likePattern(needle);
+				for (int code = 0; code < lowerValues.size(); code++) {
+					if (lowerValues.get(code) != null && pattern.matcher(lowerValues.get(code)).find()) {
+						result.set(code);
+					}
+				}
+				return result;
+			}
+			if (needle.length() < 2) {
+				for (int code = 0; code < lowerValues.size(); code++) {
+					if (lowerValues.get(code) != null && lowerValues.get(code).contains(needle)) {
+						result.set(code);
+					}
+				}
+				return result;
+			}
+			List<IntPostings> lists = new ArrayList<>();
+			for (String gram : NGrams.grams(needle)) {
+				IntPostings list = grams.get(gram);
+				if (list == null) {
+					return result;
+				}
+				lists.add(list);
+			}
+			lists.sort(Comparator.comparingInt(IntPostings::size));
+			IntPostings smallest = lists.get(0);
+			for (int i = 0; i < smallest.size(); i++) {
+				int code = smallest.get(i);
+				if (IntPostings.containsAll(lists, code) && lowerValues.get(code).contains(needle)) {
+					result.set(code);
+				}
+			}
+			return result;
+		}
+	}
+}
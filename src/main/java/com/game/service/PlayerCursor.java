@@ -0,0 +1,97 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.entity.PlayerOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+//курсор для постраничного вывода "с места": ключ сортировки и id последней выданной строки
+public class PlayerCursor {
+
+	private final PlayerOrder order;
+	private final Comparable<?> key;
+	private final Long id;
+
+	private PlayerCursor(PlayerOrder order, Comparable<?> key, Long id) {
+		this.order = order;
+		this.key = key;
+		this.id = id;
+	}
+
+	//курсор, указывающий на игрока player при сортировке order
+	public static PlayerCursor after(PlayerOrder order, Player player) {
+		Comparable<?> key;
+		switch (order) {
+			case NAME:
+				key = player.getName();
+				break;
+			case EXPERIENCE:
+				key = player.getExperience();
+				break;
+			case BIRTHDAY:
+				key = player.getBirthday();
+				break;
+			case LEVEL:
+				key = player.getLevel();
+				break;
+			default:
+				key = player.getId();
+		}
+		return new PlayerCursor(order, key, player.getId());
+	}
+
+	//разбор строки курсора; IllegalArgumentException, если строка повреждена или сортировка другая
+	public static PlayerCursor decode(String value, PlayerOrder order) {
+		String raw;
+		try {
+			raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Malformed cursor", e);
+		}
+		String[] parts = raw.split(":", 3);
+		if (parts.length != 3 || !parts[0].equals(order.name())) {
+			throw new IllegalArgumentException("Cursor does not match order " + order);
+		}
+		try {
+			Long id = Long.parseLong(parts[1]);
+			Comparable<?> key;
+			switch (order) {
+				case NAME:
+					key = parts[2];
+					break;
+				case EXPERIENCE:
+				case LEVEL:
+					key = Integer.parseInt(parts[2]);
+					break;
+				case BIRTHDAY:
+					key = new Date(Long.parseLong(parts[2]));
+					break;
+				default:
+					key = id;
+			}
+			return new PlayerCursor(order, key, id);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Malformed cursor", e);
+		}
+	}
+
+	public String encode() {
+		String keyValue = key instanceof Date ? String.valueOf(((Date) key).getTime()) : String.valueOf(key);
+		String raw = order.name() + ":" + id + ":" + keyValue;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public PlayerOrder getOrder() {
+		return order;
+	}
+
+	public Comparable<?> getKey() {
+		return key;
+	}
+
+	public Long getId() {
+		return id;
+	}
+}
@@ -0,0 +1,180 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+//загрузка игроков из построчного файла: поток запроса читает и разбирает строки, отдельный поток пишет
+//пачки через PlayerService.createPlayers. Между ними очередь на queueChunks пачек - когда база не успевает,
+//чтение встает на put, поэтому в памяти не больше (queueChunks + 2) * chunkSize игроков при любом размере файла.
+//Одновременно идет не больше writers загрузок: следующая сразу отклоняется (RejectedExecutionException),
+//а не ждет свободный пишущий поток, держа поток запроса.
+@Service
+public class PlayerImporter {
+
+	//строка файла, разобранная в игрока
+	private static class Line {
+		private final long number;
+		private final Player player;
+
+		private Line(long number, Player player) {
+			this.number = number;
+			this.player = player;
+		}
+	}
+
+	private static final List<Line> END = new ArrayList<>();
+	//незакрытая кавычка не должна склеить в одну запись весь остаток файла
+	private static final int MAX_RECORD_LINES = 100;
+
+	private final PlayerService playerService;
+	private final int chunkSize;
+	private final int queueChunks;
+	private final int maxErrors;
+	private final int retryAfterSeconds;
+	private final ExecutorService writers;
+	private final Semaphore admitted;
+
+	public PlayerImporter(PlayerService playerService,
+						  @Value("${import.chunkSize:1000}") int chunkSize,
+						  @Value("${import.queueChunks:2}") int queueChunks,
+						  @Value("${import.maxErrors:1000}") int maxErrors,
+						  @Value("${import.writers:2}") int writers,
+						  @Value("${import.retryAfterSeconds:5}") int retryAfterSeconds) {
+		this.playerService = playerService;
+		this.chunkSize = chunkSize;
+		this.queueChunks = queueChunks;
+		this.maxErrors = maxErrors;
+		this.retryAfterSeconds = retryAfterSeconds;
+		this.admitted = new Semaphore(writers);
+		this.writers = Executors.newFixedThreadPool(writers, runnable -> {
+			Thread thread = new Thread(runnable, "player-import");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//reader - строки с данными (заголовок CSV уже прочитан), firstLine - номер первой из них в файле;
+	//parser бросает IllegalArgumentException для строки, которую нельзя разобрать
+	public ImportReport importPlayers(BufferedReader reader, long firstLine, Function<String, Player> parser)
+			throws IOException {
+		return importPlayers(reader, firstLine, parser, record -> true);
+	}
+
+	//complete - запись закончена (для CSV: кавычки закрыты); иначе к ней добавляется следующая строка файла
+	//через \n, номер строки в отчете - первая строка записи
+	public ImportReport importPlayers(BufferedReader reader, long firstLine, Function<String, Player> parser,
+									  Predicate<String> complete) throws IOException {
+		if (!admitted.tryAcquire()) {
+			throw new RejectedExecutionException("all import writers are busy");
+		}
+		try {
+			return run(reader, firstLine, parser, complete);
+		} finally {
+			admitted.release();
+		}
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	private ImportReport run(BufferedReader reader, long firstLine, Function<String, Player> parser,
+							 Predicate<String> complete) throws IOException {
+		ImportReport report = new ImportReport(maxErrors);
+		BlockingQueue<List<Line>> queue = new ArrayBlockingQueue<>(queueChunks);
+		Future<?> writer = writers.submit(() -> write(queue, report));
+		try {
+			List<Line> chunk = new ArrayList<>(chunkSize);
+			long number = firstLine;
+			for (String text = reader.readLine(); text != null; text = reader.readLine(), number++) {
+				if (text.trim().isEmpty()) {
+					continue;
+				}
+				long start = number;
+				while (!complete.test(text) && number - start < MAX_RECORD_LINES) {
+					String next = reader.readLine();
+					if (next == null) {
+						break;
+					}
+					text = text + '\n' + next;
+					number++;
+				}
+				report.record();
+				try {
+					if (!complete.test(text)) {
+						throw new IllegalArgumentException("unterminated quoted field");
+					}
+					chunk.add(new Line(start, parser.apply(text)));
+				} catch (IllegalArgumentException e) {
+					report.invalid(start, e.getMessage());
+				}
+				if (chunk.size() == chunkSize) {
+					put(queue, chunk, writer);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				put(queue, chunk, writer);
+			}
+			put(queue, END, writer);
+			writer.get();
+			return report;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("import interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("import failed", e.getCause());
+		} finally {
+			writer.cancel(true);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		writers.shutdownNow();
+	}
+
+	//ждем место в очереди (база не успевает - чтение стоит), пока пишущий поток жив
+	private void put(BlockingQueue<List<Line>> queue, List<Line> chunk, Future<?> writer)
+			throws InterruptedException, ExecutionException {
+		while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+			if (writer.isDone()) {
+				writer.get();
+				throw new IllegalStateException("import writer stopped");
+			}
+		}
+	}
+
+	private void write(BlockingQueue<List<Line>> queue, ImportReport report) {
+		try {
+			for (List<Line> chunk = queue.take(); chunk != END; chunk = queue.take()) {
+				List<Player> players = new ArrayList<>(chunk.size());
+				for (Line line : chunk) {
+					players.add(line.player);
+				}
+				for (BulkItemResult result : playerService.createPlayers(players)) {
+					long number = chunk.get(result.getIndex()).number;
+					if (result.getStatus() == BulkItemResult.Status.CREATED) {
+						report.created();
+					} else if (result.getStatus() == BulkItemResult.Status.INVALID) {
+						report.invalid(number, result.getError());
+					} else {
+						report.failed(number, result.getError());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package com.game.service;
+
+import com.game.repository.PlayerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//индекс n-грамм (2 и 3 символа) по имени и титулу игрока для поиска по подстроке без учета регистра.
+//Поиск возвращает множество id кандидатов, которое дальше пересекается с остальными фильтрами в запросе;
+//like в запросе остается, поэтому строки и фрагмент свернуты не строже коллации базы (NGrams.fold):
+//индекс может вернуть лишних кандидатов, но не теряет тех, кого нашел бы like.
+//Загружается из базы при первом обращении, дальше поддерживается PlayerService при создании/изменении/удалении.
+//Строки хранятся по возрастанию id (номер строки - бинарным поиском), списки n-грамм - отсортированные int[]
+//номеров строк: без объекта на каждое вхождение, чтобы индекс помещался в память и на миллионах игроков.
+//id меньше последнего (коммиты не по порядку, блоки PlayerIdAllocator) дописываются в конец как переполнение,
+//которое время от времени сливается с основной частью прямо в памяти, без перечитывания базы.
+@Component
+public class PlayerNameIndex {
+
+	public enum Field {
+		NAME, TITLE
+	}
+
+	//изменение, пришедшее во время загрузки снимка: применяется поверх него
+	private static final class Change {
+		private final long id;
+		private final String name;
+		private final String title;
+		private final boolean removed;
+
+		private Change(long id, String name, String title, boolean removed) {
+			this.id = id;
+			this.name = name;
+			this.title = title;
+			this.removed = removed;
+		}
+	}
+
+	private final PlayerRepository playerRepository;
+	private final boolean enabled;
+	private final int maxCandidates;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	//одна загрузка снимка за раз (не synchronized: внутри запрос в базу)
+	private final ReentrantLock loadLock = new ReentrantLock();
+	private volatile boolean loaded;
+
+	//guarded by lock. rows == null - индекс не загружен
+	private Rows rows;
+	//изменения во время загрузки (null - загрузка не идет)
+	private List<Change> pending;
+	//растет при сбросе: загрузка, начатая до сброса, свой снимок не ставит
+	private long generation;
+
+	public PlayerNameIndex(PlayerRepository playerRepository,
+						   @Value("${search.ngram.enabled:true}") boolean enabled,
+						   @Value("${search.ngram.maxCandidates:1000}") int maxCandidates) {
+		this.playerRepository = playerRepository;
+		this.enabled = enabled;
+		this.maxCandidates = maxCandidates;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//id игроков, у которых поле может содержать fragment (без учета регистра, ё и диакритики);
+	//null - индекс не может помочь (выключен, слишком короткий фрагмент, в нем символы шаблона like
+	//или слишком много кандидатов)
+	public Set<Long> search(Field field, String fragment) {
+		if (!enabled || fragment == null || fragment.length() < 2 || NGrams.hasLikeWildcards(fragment)) {
+			return null;
+		}
+		//после свертки (диакритика отбрасывается) фрагмент может стать короче
+		String needle = NGrams.fold(fragment);
+		if (needle.length() < 2) {
+			return null;
+		}
+		ensureLoaded();
+		lock.readLock().lock();
+		try {
+			if (rows == null) {
+				return null;
+			}
+			List<IntPostings> lists = new ArrayList<>();
+			for (String gram : NGrams.grams(needle)) {
+				IntPostings postings = rows.postings.get(key(field, gram));
+				if (postings == null) {
+					return new HashSet<>();
+				}
+				lists.add(postings);
+			}
+			lists.sort(Comparator.comparingInt(IntPostings::size));
+
+			String[] values = field == Field.NAME ? rows.names : rows.titles;
+			Set<Long> result = new HashSet<>();
+			IntPostings smallest = lists.get(0);
+			for (int i = 0; i < smallest.size(); i++) {
+				int slot = smallest.get(i);
+				if (IntPostings.containsAll(lists, slot) && values[slot].contains(needle)) {
+					result.add(rows.ids[slot]);
+					if (result.size() > maxCandidates) {
+						return null;
+					}
+				}
+			}
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public void put(Long id, String name, String title) {
+		change(id, new Change(id == null ? 0 : id, NGrams.fold(name), NGrams.fold(title), false));
+	}
+
+	public void remove(Long id) {
+		change(id, new Change(id == null ? 0 : id, null, null, true));
+	}
+
+	//сбросить индекс, он будет перестроен из базы при следующем поиске
+	public void invalidate() {
+		lock.writeLock().lock();
+		try {
+			drop();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void change(Long id, Change change) {
+		if (!enabled || id == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (rows != null) {
+				apply(change);
+			} else if (pending != null) {
+				pending.add(change);
+			}
+			//иначе загрузки еще не было - следующая прочитает уже закоммиченное изменение из базы
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//снимок читается без блокировки индекса; изменения, пришедшие за это время, копятся в pending
+	//и применяются поверх снимка (поздний put/remove повторяет то, что уже есть в базе, - это безопасно)
+	private void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		loadLock.lock();
+		try {
+			while (!loaded) {
+				long started;
+				lock.writeLock().lock();
+				try {
+					started = generation;
+					pending = new ArrayList<>();
+				} finally {
+					lock.writeLock().unlock();
+				}
+				Rows snapshot = new Rows();
+				for (Object[] row : playerRepository.findAllNamesAndTitles()) {
+					snapshot.append((Long) row[0], NGrams.fold((String) row[1]), NGrams.fold((String) row[2]));
+				}
+				lock.writeLock().lock();
+				try {
+					if (generation == started) {
+						rows = snapshot;
+						loaded = true;
+						for (Change change : pending) {
+							if (rows != null) {
+								apply(change);
+							}
+						}
+					}
+					pending = null;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+		} finally {
+			loadLock.unlock();
+		}
+	}
+
+	private void apply(Change change) {
+		int slot = rows.slotOf(change.id);
+		if (change.removed) {
+			if (slot >= 0) {
+				rows.remove(slot);
+			}
+		} else if (slot >= 0) {
+			rows.update(slot, change.name, change.title);
+		} else {
+			rows.append(change.id, change.name, change.title);
+		}
+		if (rows.needsCompaction()) {
+			rows = rows.compacted();
+		}
+	}
+
+	private void drop() {
+		rows = null;
+		loaded = false;
+		generation++;
+	}
+
+	//строки индекса: [0, sorted) - по возрастанию id, дальше - переполнение (id -> номер строки в overflow);
+	//удаленная строка - names[slot] == null
+	private static final class Rows {
+		//переполнение сливается с основной частью, когда в нем больше max(MIN_OVERFLOW, size / 16) строк
+		private static final int MIN_OVERFLOW = 1024;
+
+		private long[] ids = new long[1024];
+		private String[] names = new String[1024];
+		private String[] titles = new String[1024];
+		private int size;
+		private int sorted;
+		private int removed;
+		private final Map<Long, Integer> overflow = new HashMap<>();
+		private final Map<String, IntPostings> postings = new HashMap<>();
+
+		private int slotOf(long id) {
+			int slot = Arrays.binarySearch(ids, 0, sorted, id);
+			if (slot < 0) {
+				Integer extra = overflow.get(id);
+				slot = extra == null ? -1 : extra;
+			}
+			return slot >= 0 && names[slot] != null ? slot : -1;
+		}
+
+		private void append(long id, String name, String title) {
+			if (size == ids.length) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				names = Arrays.copyOf(names, capacity);
+				titles = Arrays.copyOf(titles, capacity);
+			}
+			int slot = size++;
+			ids[slot] = id;
+			if (slot == sorted && (slot == 0 || ids[slot - 1] < id)) {
+				sorted++;
+			} else {
+				overflow.put(id, slot);
+			}
+			index(slot, name, title);
+		}
+
+		private void update(int slot, String name, String title) {
+			unindex(slot);
+			index(slot, name, title);
+		}
+
+		private void remove(int slot) {
+			unindex(slot);
+			names[slot] = null;
+			titles[slot] = null;
+			overflow.remove(ids[slot]);
+			removed++;
+		}
+
+		//удаленных больше половины или переполнение слишком большое - пора переложить строки
+		private boolean needsCompaction() {
+			return removed > size / 2 || overflow.size() > Math.max(MIN_OVERFLOW, size / 16);
+		}
+
+		//те же строки без удаленных и целиком по возрастанию id
+		private Rows compacted() {
+			long[] live = new long[size - removed];
+			int count = 0;
+			for (int slot = 0; slot < size; slot++) {
+				if (names[slot] != null) {
+					live[count++] = ids[slot];
+				}
+			}
+			Arrays.sort(live);
+			Rows result = new Rows();
+			for (long id : live) {
+				int slot = slotOf(id);
+				result.append(id, names[slot], titles[slot]);
+			}
+			return result;
+		}
+
+		private void index(int slot, String name, String title) {
+			names[slot] = name;
+			titles[slot] = title;
+			for (String gram : NGrams.allGrams(name)) {
+				postings.computeIfAbsent(key(Field.NAME, gram), k -> new IntPostings()).add(slot);
+			}
+			for (String gram : NGrams.allGrams(title)) {
+				postings.computeIfAbsent(key(Field.TITLE, gram), k -> new IntPostings()).add(slot);
+			}
+		}
+
+		private void unindex(int slot) {
+			unindex(Field.NAME, names[slot], slot);
+			unindex(Field.TITLE, titles[slot], slot);
+		}
+
+		private void unindex(Field field, String value, int slot) {
+			for (String gram : NGrams.allGrams(value)) {
+				String key = key(field, gram);
+				IntPostings list = postings.get(key);
+				if (list != null && list.remove(slot) && list.size() == 0) {
+					postings.remove(key);
+				}
+			}
+		}
+	}
+
+	private static String key(Field field, String gram) {
+		return field == Field.NAME ? "n" + gram : "t" + gram;
+	}
+}
@@ -1,16 +1,32 @@
 package com.game.service;
 
 import java.util.*;
+import java.util.function.Consumer;
 
+import javax.persistence.PersistenceException;
+
+import com.game.entity.PlayerOrder;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.metrics.SlowQueryLog;
+import com.game.metrics.ValidationStep;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import com.game.entity.Player;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerIdAllocator;
 import com.game.repository.PlayerRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 //класс обращается к базам данных + здесь пишется бизнес-логика
 
@@ -19,9 +35,42 @@ public class PlayerService {
 
 	@Autowired
 	private final PlayerRepository playerRepository;
+	private final PlayerNameIndex playerNameIndex;
+	private final PlayerColumnStore playerColumnStore;
+	private final PlayerCache playerCache;
+	private final PlayerIdAllocator playerIdAllocator;
+	private final PlayerWriteBuffer playerWriteBuffer;
+	private final SlowQueryLog slowQueryLog;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate flushTemplate;
+
+	@Value("${bulk.chunkSize:1000}")
+	private int bulkChunkSize;
+
+	@Value("${grant.chunkSize:1000}")
+	private int grantChunkSize;
 
-	public PlayerService(PlayerRepository playerRepository) {
+	@Value("${export.fetchSize:1000}")
+	private int exportFetchSize;
+
+	@Value("${jdbc.batchSize:100}")
+	private int jdbcBatchSize;
+
+	public PlayerService(PlayerRepository playerRepository, PlayerNameIndex playerNameIndex,
+						 PlayerColumnStore playerColumnStore, PlayerCache playerCache,
+						 PlayerIdAllocator playerIdAllocator, PlayerWriteBuffer playerWriteBuffer,
+						 SlowQueryLog slowQueryLog, PlatformTransactionManager transactionManager) {
 		this.playerRepository = playerRepository;
+		this.playerNameIndex = playerNameIndex;
+		this.playerColumnStore = playerColumnStore;
+		this.playerCache = playerCache;
+		this.playerIdAllocator = playerIdAllocator;
+		this.playerWriteBuffer = playerWriteBuffer;
+		this.slowQueryLog = slowQueryLog;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.flushTemplate = new TransactionTemplate(transactionManager);
+		this.flushTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		playerWriteBuffer.start(this::flushBuffered, this::recountLevel);
 	}
 
 	//1. найти всех
@@ -30,17 +79,82 @@ public class PlayerService {
 		return (List<Player>) playerRepository.findAll();
 	}
 
-	//2. создать игрока
-	@Transactional
+	//2. создать игрока (id берется до открытия транзакции, см. PlayerIdAllocator)
 	public Player createPlayer(Player player) {
-		playerRepository.save(player);
-		return player;
+		return playerIdAllocator.withNextId(() -> transactionTemplate.execute(status -> {
+			playerRepository.save(player);
+			afterCommit(() -> created(player));
+			return player;
+		}));
 	}
 
-	//3. обновить игрока
-	@Transactional
-	public Player updatePlayer(long id, Player player) {
+	//2.1 создать игроков пакетом: каждый проверяется как при одиночном создании,
+	//корректные вставляются пакетами JDBC, по bulkChunkSize игроков в транзакции
+	public List<BulkItemResult> createPlayers(List<Player> players) {
+		BulkItemResult[] results = new BulkItemResult[players.size()];
+		List<Player> chunk = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < players.size(); i++) {
+			Player player = players.get(i);
+			String error = validateNewPlayer(player);
+			if (error != null) {
+				results[i] = BulkItemResult.invalid(i, error);
+				continue;
+			}
+			prepareNewPlayer(player);
+			chunk.add(player);
+			indexes.add(i);
+			if (chunk.size() == bulkChunkSize) {
+				saveChunk(chunk, indexes, results);
+				chunk = new ArrayList<>();
+				indexes = new ArrayList<>();
+			}
+		}
+		if (!chunk.isEmpty()) {
+			saveChunk(chunk, indexes, results);
+		}
+		return Arrays.asList(results);
+	}
+
+	//вставка части пакета в одной транзакции; при ошибке вся часть помечается FAILED
+	private void saveChunk(List<Player> chunk, List<Integer> indexes, BulkItemResult[] results) {
+		try {
+			playerIdAllocator.withReserved(chunk.size(), () -> transactionTemplate.execute(status -> {
+				playerRepository.persistAll(chunk, jdbcBatchSize);
+				afterCommit(() -> chunk.forEach(this::created));
+				return null;
+			}));
+			for (int i = 0; i < chunk.size(); i++) {
+				results[indexes.get(i)] = BulkItemResult.created(indexes.get(i), chunk.get(i).getId());
+			}
+		} catch (DataAccessException | PersistenceException e) {
+			for (Integer index : indexes) {
+				results[index] = BulkItemResult.failed(index, e.getMessage());
+			}
+		}
+	}
+
+	//после коммита нового игрока: сбросить запомненное "нет такого id" и добавить в индексы
+	private void created(Player player) {
+		playerCache.invalidate(player.getId());
+		playerNameIndex.put(player.getId(), player.getName(), player.getTitle());
+		playerColumnStore.put(player);
+	}
+
+	//3. обновить игрока; пустой Optional - игрока нет (проверка и обновление в одной транзакции).
+	//При отложенной записи транзакция не открывается: изменение уходит в буфер
+	public Optional<Player> updatePlayer(long id, Player player) {
+		if (playerWriteBuffer.isEnabled()) {
+			return buffered(id, PlayerWriteBuffer.Pending.update(id, player));
+		}
+		return transactionTemplate.execute(status -> updateStored(id, player));
+	}
+
+	private Optional<Player> updateStored(long id, Player player) {
 		Optional<Player> newPlayer = playerRepository.findById(id);
+		if (!newPlayer.isPresent()) {
+			return Optional.empty();
+		}
 		Player updatePlayer = newPlayer.get();						//сюда сохраняем старого игрока
 		if(player.getName() != null){
 			updatePlayer.setName(player.getName());
@@ -66,55 +180,299 @@ public class PlayerService {
 		updatePlayer.setLevel(countLevel(updatePlayer));
 		updatePlayer.setUntilNextLevel(countUntilNextLevel(updatePlayer));
 		playerRepository.save(updatePlayer);
-		return updatePlayer;
+		//кэш сбрасываем, а не кладем updatePlayer: параллельные обновления одного игрока могут
+		//закоммититься в другом порядке, чем выполнятся afterCommit, и в кэше осталась бы старая версия
+		afterCommit(() -> {
+			playerCache.invalidate(id);
+			playerNameIndex.put(id, updatePlayer.getName(), updatePlayer.getTitle());
+			playerColumnStore.put(updatePlayer);
+		});
+		return Optional.of(updatePlayer);
 
 	}
 
-	//4. удалить игрока
-	@Transactional
-	public void deletePlayer(Long id) {
-		playerRepository.deleteById(id);
+	//3.1 прибавить опыт одному игроку атомарно (один update, уровень считается в нем же);
+	//пустой Optional - игрока нет. Строка заблокирована update'ом, поэтому чтение видит именно наш результат
+	public Optional<Player> addExperience(long id, int delta) {
+		if (playerWriteBuffer.isEnabled()) {
+			return buffered(id, PlayerWriteBuffer.Pending.experience(id, delta));
+		}
+		return transactionTemplate.execute(status -> addStoredExperience(id, delta));
 	}
 
-	//5. найти по ID
-	@Transactional
-	public Player findById(Long id) {
+	private Optional<Player> addStoredExperience(long id, int delta) {
+		if (playerRepository.grantExperience(Collections.singletonList(id), delta) == 0) {
+			return Optional.empty();
+		}
 		Optional<Player> player = playerRepository.findById(id);
-		return player.get();
+		//в кэш не кладем: параллельные начисления одному игроку могут закоммититься в другом порядке
+		player.ifPresent(updated -> afterCommit(() -> {
+			playerCache.invalidate(id);
+			playerColumnStore.refreshExperience(Collections.singletonList(id));
+		}));
+		return player;
 	}
 
-	public boolean existsById(Long id) {
-		if (!playerRepository.existsById(id)){
+	//3.2 при отложенной записи: изменение в буфер, ответ - игрок с учетом еще не записанного
+	private Optional<Player> buffered(long id, PlayerWriteBuffer.Pending update) {
+		if (!playerCache.get(id).isPresent()) {
+			return Optional.empty();
+		}
+		playerWriteBuffer.offer(update);
+		return findById(id);
+	}
+
+	//запись пачки из буфера: одна транзакция, игроки читаются одним запросом, update уходят пакетами JDBC.
+	//Удаленных за это время игроков пропускаем. Транзакция всегда своя (REQUIRES_NEW): принудительная
+	//запись из offer не должна присоединяться к транзакции вызывающего и откатывать ее при ошибке.
+	//После коммита кэш сбрасывается, а не заполняется: пачки и другие записи могут закоммититься в другом порядке
+	private void flushBuffered(List<PlayerWriteBuffer.Pending> batch) {
+		Map<Long, PlayerWriteBuffer.Pending> updates = new HashMap<>();
+		for (PlayerWriteBuffer.Pending update : batch) {
+			updates.put(update.getId(), update);
+		}
+		flushTemplate.execute(status -> {
+			List<Player> players = new ArrayList<>();
+			for (Player player : playerRepository.findAllById(updates.keySet())) {
+				updates.get(player.getId()).applyTo(player);
+				recountLevel(player);
+				playerWriteBuffer.written(player);
+				players.add(player);
+			}
+			playerRepository.saveAll(players);
+			afterCommit(() -> players.forEach(player -> {
+				playerCache.invalidate(player.getId());
+				playerNameIndex.put(player.getId(), player.getName(), player.getTitle());
+				playerColumnStore.put(player);
+			}));
+			return null;
+		});
+	}
+
+	private void recountLevel(Player player) {
+		player.setLevel(countLevel(player));
+		player.setUntilNextLevel(countUntilNextLevel(player));
+	}
+
+	//4. удалить игрока; false - игрока не было
+	@Transactional
+	public boolean deletePlayer(Long id) {
+		playerWriteBuffer.discard(id);
+		if (playerRepository.deletePlayerById(id) == 0) {
 			return false;
 		}
+		afterCommit(() -> {
+			playerCache.putMissing(id);
+			playerNameIndex.remove(id);
+			playerColumnStore.remove(id);
+		});
 		return true;
 	}
 
+	//4.1 начислить опыт списку игроков: update по частям (grantChunkSize id в транзакции),
+	//уровень пересчитывается в том же запросе; возвращает кол-во измененных игроков
+	public int grantExperience(Collection<Long> ids, int delta) {
+		List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+		int updated = 0;
+		for (int from = 0; from < distinct.size(); from += grantChunkSize) {
+			updated += grantExperienceChunk(distinct.subList(from, Math.min(from + grantChunkSize, distinct.size())), delta);
+		}
+		return updated;
+	}
+
+	//4.2 начислить опыт всем игрокам по фильтру: id выбираются по возрастанию частями, каждая часть - один update
+	public int grantExperience(PlayerFilter filter, int delta) {
+		int updated = 0;
+		Long lastId = null;
+		List<Long> ids;
+		do {
+			ids = playerRepository.findIdsByFilterAfter(filter, lastId, grantChunkSize);
+			if (!ids.isEmpty()) {
+				updated += grantExperienceChunk(ids, delta);
+				lastId = ids.get(ids.size() - 1);
+			}
+		} while (ids.size() == grantChunkSize);
+		return updated;
+	}
+
+	private int grantExperienceChunk(List<Long> ids, int delta) {
+		//update идет в обход буфера: сначала записываем то, что в нем накоплено для этих игроков,
+		//иначе присвоенный там опыт записался бы после начисления и затер его
+		if (playerWriteBuffer.isEnabled()) {
+			playerWriteBuffer.flush(ids);
+		}
+		Integer updated = transactionTemplate.execute(status -> {
+			int count = playerRepository.grantExperience(ids, delta);
+			afterCommit(() -> {
+				ids.forEach(playerCache::invalidate);
+				playerColumnStore.refreshExperience(ids);
+			});
+			return count;
+		});
+		return updated == null ? 0 : updated;
+	}
+
+	//5. найти по ID (через кэш)
+	public Optional<Player> findById(Long id) {
+		if (playerWriteBuffer.isEnabled()) {
+			return playerCache.get(id).map(playerWriteBuffer::view);
+		}
+		return playerCache.get(id);
+	}
+
 	//6. найти по параметрам(фильтрам)
-	@Transactional
+	//без своей транзакции: запрос в базу транзакционный в репозитории, а из снимка соединение не нужно
 	public List<Player> findAllByParams(String name, String title, Race race, Profession profession,
 										Date after, Date before,Boolean banned, Integer minExperience,
 										Integer maxExperience, Integer minLevel, Integer maxLevel,
-										Integer pageNumber, Integer pageSize) {
-		Pageable pageable = PageRequest.of(pageNumber, pageSize);
-		List<Player> all = playerRepository.findAllByParams(name, title, race, profession, after, before,
-										banned, minExperience, maxExperience, minLevel,
-										maxLevel, pageable);
-		return all;
+										PlayerOrder order, Integer pageNumber, Integer pageSize) {
+		PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before,
+										banned, minExperience, maxExperience, minLevel, maxLevel);
+		long started = System.nanoTime();
+		List<Player> players = findPage(filter, order, pageNumber, pageSize);
+		slowQueryLog.record("findAllByParams", started, filter, order, pageNumber, pageSize, players.size());
+		return players;
+	}
+
+	private List<Player> findPage(PlayerFilter filter, PlayerOrder order, Integer pageNumber, Integer pageSize) {
+		if (playerColumnStore.isEnabled()) {
+			return playerColumnStore.find(filter, order, pageNumber, pageSize);
+		}
+		Pageable pageable = PageRequest.of(pageNumber, pageSize, sortBy(order));
+		filter = narrowByName(filter);
+		if (filter == null) {
+			return new ArrayList<>();
+		}
+		return playerRepository.findAllByFilter(filter, pageable);
+	}
+
+	//6.1 найти по фильтрам страницу после курсора (cursor == null - первая страница)
+	@Transactional(readOnly = true)
+	public List<Player> findAllByParamsAfter(PlayerFilter filter, PlayerOrder order, PlayerCursor cursor,
+											 Integer pageSize) {
+		long started = System.nanoTime();
+		PlayerFilter narrowed = narrowByName(filter);
+		List<Player> players;
+		if (narrowed == null) {
+			players = new ArrayList<>();
+		} else if (cursor == null) {
+			players = playerRepository.findAllByFilterAfter(narrowed, order.getFieldName(), null, null, pageSize);
+		} else {
+			players = playerRepository.findAllByFilterAfter(narrowed, order.getFieldName(), cursor.getKey(),
+					cursor.getId(), pageSize);
+		}
+		slowQueryLog.record("findAllByParamsAfter", started, filter, order, null, pageSize, players.size());
+		return players;
+	}
+
+	//6.2 выгрузка всех найденных по фильтрам: игроки передаются в sink по одному, память не растет с их числом.
+	//Соединение занято на все время выгрузки.
+	@Transactional(readOnly = true)
+	public void exportByParams(PlayerFilter filter, PlayerOrder order, Consumer<Player> sink) {
+		filter = narrowByName(filter);
+		if (filter != null) {
+			playerRepository.forEachByFilter(filter, sortBy(order), exportFetchSize, sink);
+		}
 	}
 
 	//7. посчитать кол-во найденных по параметрам
-	@Transactional
-	public int findAllByParamsAndCount(String name, String title, Race race, Profession profession,
+	public long findAllByParamsAndCount(String name, String title, Race race, Profession profession,
 									   Date after, Date before, Boolean banned, Integer minExperience,
 									   Integer maxExperience, Integer minLevel, Integer maxLevel) {
 
-		List<Player> all = playerRepository.findAllByParamsAndCount(name, title, race, profession, after, before,
-										banned, minExperience, maxExperience, minLevel,maxLevel);
-		return all.size();
+		PlayerFilter filter = new PlayerFilter(name, title, race, profession, after, before,
+										banned, minExperience, maxExperience, minLevel, maxLevel);
+		long started = System.nanoTime();
+		long count = count(filter);
+		slowQueryLog.record("findAllByParamsAndCount", started, filter, null, null, null, count);
+		return count;
+	}
+
+	private long count(PlayerFilter filter) {
+		if (playerColumnStore.isEnabled()) {
+			return playerColumnStore.count(filter);
+		}
+		filter = narrowByName(filter);
+		if (filter == null) {
+			return 0;
+		}
+		return playerRepository.countByFilter(filter);
+	}
+
+	//сужаем фильтр по name/title до кандидатов из индекса n-грамм; null - заведомо пустой результат.
+	//Условие like в запросе остается, так что результат совпадает с поиском без индекса.
+	private PlayerFilter narrowByName(PlayerFilter filter) {
+		Set<Long> ids = null;
+		if (filter.getName() != null) {
+			ids = playerNameIndex.search(PlayerNameIndex.Field.NAME, filter.getName());
+		}
+		if (filter.getTitle() != null) {
+			Set<Long> byTitle = playerNameIndex.search(PlayerNameIndex.Field.TITLE, filter.getTitle());
+			if (ids == null) {
+				ids = byTitle;
+			} else if (byTitle != null) {
+				ids.retainAll(byTitle);
+			}
+		}
+		if (ids == null) {
+			return filter;
+		}
+		return ids.isEmpty() ? null : filter.withIds(ids);
+	}
+
+	//действие после успешного коммита текущей транзакции (или сразу, если транзакции нет)
+	private void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	//сортировка по полю из PlayerOrder, при равенстве - по id, чтобы страницы не пересекались
+	public Sort sortBy(PlayerOrder order) {
+		if (order == null || order == PlayerOrder.ID) {
+			return Sort.by(Sort.Direction.ASC, PlayerOrder.ID.getFieldName());
+		}
+		return Sort.by(Sort.Direction.ASC, order.getFieldName(), PlayerOrder.ID.getFieldName());
+	}
+
+	//проверка нового игрока (включая отсутствующие поля); null - можно сохранять, иначе текст ошибки
+	@ValidationStep
+	public String validateNewPlayer(Player player) {
+		if (player == null || isEmptyBody(player)) {
+			return "empty body";
+		}
+		if (player.getId() != null) {
+			return "id must not be set";
+		}
+		if (player.getName() == null || player.getTitle() == null || player.getRace() == null
+				|| player.getProfession() == null || player.getBirthday() == null || player.getExperience() == null) {
+			return "required field is missing";
+		}
+		if (!checkPlayerBeforeSave(player)) {
+			return "invalid field value";
+		}
+		return null;
+	}
+
+	//уровень, опыт до следующего уровня и banned по умолчанию перед сохранением нового игрока
+	@ValidationStep
+	public void prepareNewPlayer(Player player) {
+		player.setLevel(countLevel(player));
+		player.setUntilNextLevel(countUntilNextLevel(player));
+		if (player.getBanned() == null) {
+			player.setBanned(false);
+		}
 	}
 
 	//проверка полей перед созданием игрока
+	@ValidationStep
 	public boolean checkPlayerBeforeSave(Player player){
 		Long begin = new GregorianCalendar(2000,1,1).getTimeInMillis();
 		Long end = new GregorianCalendar(3000,1,1).getTimeInMillis();
@@ -130,6 +488,7 @@ public class PlayerService {
 		return true;
 	}
 
+	@ValidationStep
 	public boolean checkBirthday(Date date){
 		if(date == null) {
 			return true;
@@ -144,6 +503,7 @@ public class PlayerService {
 		return true;
 	}
 
+	@ValidationStep
 	public boolean checkExperience(Integer exp) {
 		if(exp == null) {
 			return  true;
@@ -154,6 +514,7 @@ public class PlayerService {
 		return true;
 	}
 
+	@ValidationStep
 	public boolean checkTitle(String title){
 		if(title.length() >30)	{
 			return false;
@@ -162,15 +523,18 @@ public class PlayerService {
 	}
 
 	//высчитываем текущий  уровень
+	@ValidationStep
 	public int countLevel(Player player){
 		return (int) ((Math.sqrt(2500+200*player.getExperience()) - 50)/100);
 	}
 
 	//высчитываем опыт
+	@ValidationStep
 	public int countUntilNextLevel(Player player){
 		return 50* (countLevel(player)+1)*(countLevel(player)+2)-player.getExperience();
 	}
 
+	@ValidationStep
 	public boolean isValidId(String playerId){
 		Long id;
 		try {
@@ -181,6 +545,7 @@ public class PlayerService {
 		return id > 0;
 	}
 
+	@ValidationStep
 	public  boolean isEmptyBody (Player player){
 		return player.getName() == null
 				&& player.getTitle() == null
@@ -0,0 +1,402 @@
+package com.game.service;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.metrics.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+//отложенная запись изменений игроков: изменения полей и прибавки опыта копятся по id и сливаются,
+//в базу уходят пачками по размеру (flushSize) или по таймеру (flushMillis).
+//Чтение игрока через view видит еще не записанные изменения.
+//Изменения одного id хранятся в pending (новые) и inFlight (записываются сейчас); written - состояние,
+//которое пишет текущая пачка, оно известно до коммита. Переходы между ними - под write-локом (без IO),
+//добавление и чтение - под read-локом и между собой не блокируются.
+@Component
+public class PlayerWriteBuffer {
+
+	private final boolean enabled;
+	private final int maxPlayers;
+	private final int flushSize;
+	private final long flushMillis;
+
+	private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+	private final Map<Long, Pending> inFlight = new HashMap<>();
+	private final Map<Long, Player> written = new ConcurrentHashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	//запись пачки идет в базу под этой блокировкой
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private final LatencyHistogram flushLatency = new LatencyHistogram();
+	private final AtomicLong offered = new AtomicLong();
+	private final AtomicLong flushedPlayers = new AtomicLong();
+	private final AtomicLong flushFailures = new AtomicLong();
+	private final AtomicLong forcedFlushes = new AtomicLong();
+
+	private ScheduledExecutorService scheduler;
+	private Consumer<List<Pending>> flusher;
+	private Consumer<Player> recount;
+
+	public PlayerWriteBuffer(@Value("${writeBehind.enabled:false}") boolean enabled,
+							 @Value("${writeBehind.maxPlayers:10000}") int maxPlayers,
+							 @Value("${writeBehind.flushSize:500}") int flushSize,
+							 @Value("${writeBehind.flushMillis:200}") long flushMillis) {
+		this.enabled = enabled;
+		this.maxPlayers = maxPlayers;
+		this.flushSize = flushSize;
+		this.flushMillis = flushMillis;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//flusher пишет пачку в базу в одной транзакции и до коммита сообщает итог по каждому игроку через written;
+	//recount пересчитывает уровень после наложения изменений
+	public void start(Consumer<List<Pending>> flusher, Consumer<Player> recount) {
+		this.flusher = flusher;
+		this.recount = recount;
+		if (!enabled || flushMillis <= 0) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "player-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+	}
+
+	//1. запомнить изменение; если в буфере уже maxPlayers игроков - записываем в потоке вызывающего
+	public void offer(Pending update) {
+		if (pending.size() >= maxPlayers && !pending.containsKey(update.id)) {
+			forcedFlushes.incrementAndGet();
+			flush();
+		}
+		lock.readLock().lock();
+		try {
+			pending.merge(update.id, update, Pending::merge);
+		} finally {
+			lock.readLock().unlock();
+		}
+		offered.incrementAndGet();
+		if (pending.size() >= flushSize && scheduler != null && flushScheduled.compareAndSet(false, true)) {
+			scheduler.execute(() -> {
+				flushScheduled.set(false);
+				flushQuietly();
+			});
+		}
+	}
+
+	//2. игрок с еще не записанными изменениями (копия); stored - значение из базы/кэша
+	public Player view(Player stored) {
+		lock.readLock().lock();
+		try {
+			Player base = written.get(stored.getId());
+			Pending inFlightUpdate = base == null ? inFlight.get(stored.getId()) : null;
+			Pending pendingUpdate = pending.get(stored.getId());
+			if (base == null && inFlightUpdate == null && pendingUpdate == null) {
+				return stored;
+			}
+			Player view = copy(base == null ? stored : base);
+			if (inFlightUpdate != null) {
+				inFlightUpdate.applyTo(view);
+			}
+			if (pendingUpdate != null) {
+				pendingUpdate.applyTo(view);
+			}
+			recount.accept(view);
+			return view;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//вызывается flusher'ом внутри транзакции, до коммита
+	public void written(Player player) {
+		written.put(player.getId(), copy(player));
+	}
+
+	//3. забыть изменения удаленного игрока
+	public void discard(Long id) {
+		lock.readLock().lock();
+		try {
+			pending.remove(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//4. записать все накопленное; при ошибке пачка возвращается в буфер (под более новые изменения)
+	public void flush() {
+		if (flusher == null) {
+			return;
+		}
+		flushLock.lock();
+		try {
+			List<Pending> batch;
+			while (!(batch = drain()).isEmpty()) {
+				write(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	//4.1 записать накопленное только для этих игроков - перед тем, как их строки меняются в обход буфера
+	//(начисление опыта запросом): иначе присвоенный в буфере опыт записался бы позже и затер начисление.
+	//Пачка, которая пишется сейчас, дописывается до возврата (flushLock)
+	public void flush(Collection<Long> ids) {
+		if (flusher == null) {
+			return;
+		}
+		flushLock.lock();
+		try {
+			List<Pending> batch;
+			Iterator<Long> remaining = ids.iterator();
+			while (!(batch = drain(remaining)).isEmpty()) {
+				write(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			try {
+				scheduler.awaitTermination(flushMillis * 10, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flush();
+	}
+
+	public int getQueueDepth() {
+		return pending.size();
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("enabled", enabled);
+		result.put("queueDepth", pending.size());
+		result.put("maxPlayers", maxPlayers);
+		result.put("offered", offered.get());
+		result.put("flushedPlayers", flushedPlayers.get());
+		result.put("flushFailures", flushFailures.get());
+		result.put("forcedFlushes", forcedFlushes.get());
+		result.put("flushLatency", flushLatency.snapshot());
+		return result;
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			//пачка уже возвращена в буфер, повторим на следующем тике
+		}
+	}
+
+	private void write(List<Pending> batch) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			flusher.accept(batch);
+			success = true;
+		} finally {
+			complete(batch, success);
+			flushLatency.recordNanos(System.nanoTime() - start);
+		}
+		flushedPlayers.addAndGet(batch.size());
+	}
+
+	private List<Pending> drain() {
+		lock.writeLock().lock();
+		try {
+			List<Pending> batch = new ArrayList<>();
+			Iterator<Pending> iterator = pending.values().iterator();
+			while (iterator.hasNext() && batch.size() < flushSize) {
+				Pending update = iterator.next();
+				iterator.remove();
+				inFlight.put(update.id, update);
+				batch.add(update);
+			}
+			return batch;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//следующая пачка из изменений игроков ids (итератор продвигается)
+	private List<Pending> drain(Iterator<Long> ids) {
+		lock.writeLock().lock();
+		try {
+			List<Pending> batch = new ArrayList<>();
+			while (ids.hasNext() && batch.size() < flushSize) {
+				Pending update = pending.remove(ids.next());
+				if (update != null) {
+					inFlight.put(update.id, update);
+					batch.add(update);
+				}
+			}
+			return batch;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void complete(List<Pending> batch, boolean success) {
+		lock.writeLock().lock();
+		try {
+			for (Pending update : batch) {
+				inFlight.remove(update.id);
+				written.remove(update.id);
+				if (!success) {
+					pending.merge(update.id, update, (newer, older) -> older.merge(newer));
+				}
+			}
+			if (!success) {
+				flushFailures.incrementAndGet();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static Player copy(Player player) {
+		return new Player(player.getId(), player.getName(), player.getTitle(), player.getRace(),
+				player.getProfession(), player.getExperience(), player.getLevel(), player.getUntilNextLevel(),
+				player.getBirthday(), player.getBanned());
+	}
+
+	//слитые изменения одного игрока: null - поле не менялось; experience - последнее присвоенное значение.
+	//Прибавки после него, как и без буфера, обрезаются до 0..MAX_EXPERIENCE на каждом шаге; цепочка таких
+	//шагов сводится к одному: min(experienceMax, max(experienceMin, опыт + experienceDelta))
+	public static final class Pending {
+		private static final long MAX_EXPERIENCE = 10000000;
+
+		private final long id;
+		private final String name;
+		private final String title;
+		private final Race race;
+		private final Profession profession;
+		private final Date birthday;
+		private final Boolean banned;
+		private final Integer experience;
+		private final long experienceDelta;
+		private final long experienceMin;
+		private final long experienceMax;
+
+		private Pending(long id, String name, String title, Race race, Profession profession, Date birthday,
+						Boolean banned, Integer experience, long experienceDelta, long experienceMin,
+						long experienceMax) {
+			this.id = id;
+			this.name = name;
+			this.title = title;
+			this.race = race;
+			this.profession = profession;
+			this.birthday = birthday;
+			this.banned = banned;
+			this.experience = experience;
+			this.experienceDelta = experienceDelta;
+			this.experienceMin = experienceMin;
+			this.experienceMax = experienceMax;
+		}
+
+		public static Pending update(long id, Player patch) {
+			return new Pending(id, patch.getName(), patch.getTitle(), patch.getRace(), patch.getProfession(),
+					patch.getBirthday(), patch.getBanned(), patch.getExperience(), 0, 0, MAX_EXPERIENCE);
+		}
+
+		public static Pending experience(long id, int delta) {
+			return new Pending(id, null, null, null, null, null, null, null, delta, 0, MAX_EXPERIENCE);
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		//наложить изменения на игрока (уровень пересчитывает вызывающий)
+		public void applyTo(Player player) {
+			if (name != null) {
+				player.setName(name);
+			}
+			if (title != null) {
+				player.setTitle(title);
+			}
+			if (race != null) {
+				player.setRace(race);
+			}
+			if (profession != null) {
+				player.setProfession(profession);
+			}
+			if (birthday != null) {
+				player.setBirthday(birthday);
+			}
+			if (banned != null) {
+				player.setBanned(banned);
+			}
+			//-100, затем +100 дают нулевой сдвиг, но поднятую нижнюю границу - это тоже изменение
+			if (experience != null || experienceDelta != 0 || experienceMin > 0 || experienceMax < MAX_EXPERIENCE) {
+				Integer base = experience != null ? experience : player.getExperience();
+				player.setExperience((int) clampedExperience(base == null ? 0 : base));
+			}
+		}
+
+		private long clampedExperience(long base) {
+			return Math.min(experienceMax, Math.max(experienceMin, base + experienceDelta));
+		}
+
+		//this - более старые изменения, newer - более новые
+		private Pending merge(Pending newer) {
+			Integer mergedExperience;
+			long delta;
+			long min;
+			long max;
+			if (newer.experience != null) {
+				mergedExperience = newer.experience;
+				delta = newer.experienceDelta;
+				min = newer.experienceMin;
+				max = newer.experienceMax;
+			} else if (experience != null) {
+				//значение известно - прибавки накладываются сразу, с обрезкой на каждом шаге
+				mergedExperience = (int) newer.clampedExperience(clampedExperience(experience));
+				delta = 0;
+				min = 0;
+				max = MAX_EXPERIENCE;
+			} else {
+				//newer(this(x)): сдвиги складываются, границы this сдвигаются и обрезаются границами newer
+				mergedExperience = null;
+				delta = experienceDelta + newer.experienceDelta;
+				min = newer.clampedExperience(experienceMin);
+				max = newer.clampedExperience(experienceMax);
+			}
+			return new Pending(id,
+					newer.name != null ? newer.name : name,
+					newer.title != null ? newer.title : title,
+					newer.race != null ? newer.race : race,
+					newer.profession != null ? newer.profession : profession,
+					newer.birthday != null ? newer.birthday : birthday,
+					newer.banned != null ? newer.banned : banned,
+					mergedExperience, delta, min, max);
+		}
+	}
+}
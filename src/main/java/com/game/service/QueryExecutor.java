@@ -0,0 +1,131 @@
+package com.game.service;
+
+import com.game.metrics.LatencyHistogram;
+import com.game.metrics.RequestPhases;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+//отдельный ограниченный пул для тяжелых поисков по фильтрам (GET /rest/players, /count): их всплеск
+//занимает не больше threads соединений и не больше queueSize мест в очереди, остальным запросам
+//(по id, изменения, запись) пул соединений остается. Сверх очереди задача сразу отклоняется
+//(RejectedExecutionException), не дождавшаяся результата за timeoutMillis - завершается TimeoutException.
+//Поток задачи по таймауту не прерывается: прерывание посреди JDBC-вызова портит соединение,
+//поэтому начатый поиск доработает, а еще не начатый из очереди убирается
+@Component
+public class QueryExecutor {
+
+	private final ThreadPoolExecutor executor;
+	private final ScheduledExecutorService timer;
+	private final long timeoutMillis;
+	private final int retryAfterSeconds;
+
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	public QueryExecutor(@Value("${query.executor.threads:8}") int threads,
+						 @Value("${query.executor.queueSize:32}") int queueSize,
+						 @Value("${query.executor.timeoutMillis:5000}") long timeoutMillis,
+						 @Value("${query.executor.retryAfterSeconds:1}") int retryAfterSeconds) {
+		this.timeoutMillis = timeoutMillis;
+		this.retryAfterSeconds = retryAfterSeconds;
+		AtomicInteger number = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), runnable -> {
+			Thread thread = new Thread(runnable, "player-query-" + number.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "player-query-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	//выполнить query в пуле в контексте текущего запроса (время по фазам, трассировка, traceId в логах)
+	public <T> CompletableFuture<T> submit(Supplier<T> query) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		RequestPhases.State part = RequestPhases.fork();
+		long queued = System.nanoTime();
+		Runnable task = () -> {
+			queueWait.recordNanos(System.nanoTime() - queued);
+			if (result.isDone()) {
+				return;
+			}
+			RequestPhases.State previous = part == null ? null : RequestPhases.join(part);
+			try {
+				T value;
+				try {
+					value = query.get();
+				} finally {
+					if (part != null) {
+						RequestPhases.leave(part, previous);
+					}
+				}
+				result.complete(value);
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			result.completeExceptionally(e);
+			return result;
+		}
+		submitted.increment();
+		ScheduledFuture<?> timeout = timer.schedule(() -> {
+			if (!result.isDone()) {
+				//из очереди и счетчик - до завершения, чтобы получивший таймаут уже видел и то и другое
+				executor.remove(task);
+				timedOut.increment();
+				if (!result.completeExceptionally(new TimeoutException("Query timed out after " + timeoutMillis + " ms"))) {
+					timedOut.decrement();
+				}
+			}
+		}, timeoutMillis, TimeUnit.MILLISECONDS);
+		result.whenComplete((value, e) -> timeout.cancel(false));
+		return result;
+	}
+
+	//отказ пула (очередь полна или таймаут), на который клиенту отвечают 503
+	public static boolean isOverloaded(Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		return cause instanceof RejectedExecutionException || cause instanceof TimeoutException;
+	}
+
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("threads", executor.getMaximumPoolSize());
+		result.put("active", executor.getActiveCount());
+		result.put("queued", executor.getQueue().size());
+		result.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+		result.put("timeoutMillis", timeoutMillis);
+		result.put("submitted", submitted.sum());
+		result.put("rejected", rejected.sum());
+		result.put("timedOut", timedOut.sum());
+		result.put("queueWait", queueWait.snapshot());
+		return result;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		timer.shutdownNow();
+		executor.shutdown();
+	}
+}
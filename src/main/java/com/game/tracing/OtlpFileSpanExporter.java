@@ -0,0 +1,91 @@
+package com.game.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+//запись span в файл: строка на пачку в JSON-формате OTLP (ExportTraceServiceRequest),
+//такую строку можно отправить в OTLP/HTTP collector (POST /v1/traces) без изменений
+public class OtlpFileSpanExporter implements SpanExporter {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final File file;
+	private final String serviceName;
+
+	public OtlpFileSpanExporter(File file, String serviceName) {
+		this.file = file;
+		this.serviceName = serviceName;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public void export(List<Span> spans) throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		byte[] line = MAPPER.writeValueAsBytes(toRequest(spans));
+		try (OutputStream out = new FileOutputStream(file, true)) {
+			out.write(line);
+			out.write('\n');
+		}
+	}
+
+	Map<String, Object> toRequest(List<Span> spans) {
+		List<Object> otlpSpans = new ArrayList<>(spans.size());
+		for (Span span : spans) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("traceId", span.getTrace().getTraceId());
+			item.put("spanId", Trace.hex(span.getSpanId()));
+			if (span.getParentSpanId() != 0) {
+				item.put("parentSpanId", Trace.hex(span.getParentSpanId()));
+			}
+			item.put("name", span.getName());
+			item.put("kind", span.getKind());
+			//uint64 в JSON-отображении protobuf - строкой
+			item.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+			item.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+			item.put("attributes", attributes(span.getAttributes()));
+			//STATUS_CODE_ERROR = 2, STATUS_CODE_UNSET = 0
+			item.put("status", Collections.singletonMap("code", span.isError() ? 2 : 0));
+			otlpSpans.add(item);
+		}
+		Map<String, Object> scopeSpans = new LinkedHashMap<>();
+		scopeSpans.put("scope", Collections.singletonMap("name", "com.game"));
+		scopeSpans.put("spans", otlpSpans);
+		Map<String, Object> resourceSpans = new LinkedHashMap<>();
+		resourceSpans.put("resource", Collections.singletonMap("attributes",
+				attributes(Collections.singletonMap("service.name", serviceName))));
+		resourceSpans.put("scopeSpans", Collections.singletonList(scopeSpans));
+		return Collections.singletonMap("resourceSpans", Collections.singletonList(resourceSpans));
+	}
+
+	private static List<Object> attributes(Map<String, Object> values) {
+		List<Object> result = new ArrayList<>(values.size());
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			Object value = entry.getValue();
+			String type;
+			if (value instanceof Boolean) {
+				type = "boolValue";
+			} else if (value instanceof Long || value instanceof Integer) {
+				type = "intValue";
+				value = String.valueOf(value);
+			} else {
+				type = "stringValue";
+				value = String.valueOf(value);
+			}
+			Map<String, Object> attribute = new LinkedHashMap<>();
+			attribute.put("key", entry.getKey());
+			attribute.put("value", Collections.singletonMap(type, value));
+			result.add(attribute);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,82 @@
+package com.game.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//завершенный (или еще открытый) участок трассировки
+public class Span {
+
+	//виды span в терминах OTLP
+	public static final int KIND_INTERNAL = 1;
+	public static final int KIND_SERVER = 2;
+
+	private final Trace trace;
+	private final long spanId;
+	private final long parentSpanId;
+	private final String name;
+	private final int kind;
+	private final long startNanos;
+	private long endNanos;
+	private boolean error;
+	private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+	Span(Trace trace, long spanId, long parentSpanId, String name, int kind, long startNanos) {
+		this.trace = trace;
+		this.spanId = spanId;
+		this.parentSpanId = parentSpanId;
+		this.name = name;
+		this.kind = kind;
+		this.startNanos = startNanos;
+	}
+
+	public Trace getTrace() {
+		return trace;
+	}
+
+	public long getSpanId() {
+		return spanId;
+	}
+
+	//0 - корневой span без родителя
+	public long getParentSpanId() {
+		return parentSpanId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	//время от эпохи Unix в наносекундах
+	public long getStartEpochNanos() {
+		return trace.toEpochNanos(startNanos);
+	}
+
+	public long getEndEpochNanos() {
+		return trace.toEpochNanos(endNanos);
+	}
+
+	public boolean isError() {
+		return error;
+	}
+
+	public void setError(boolean error) {
+		this.error = error;
+	}
+
+	//значения - String, Long/Integer или Boolean
+	public Map<String, Object> getAttributes() {
+		return attributes;
+	}
+
+	public void setAttribute(String key, Object value) {
+		attributes.put(key, value);
+	}
+
+	void end(long endNanos) {
+		this.endNanos = endNanos;
+	}
+}
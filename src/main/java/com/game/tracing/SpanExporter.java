@@ -0,0 +1,11 @@
+package com.game.tracing;
+
+import java.io.IOException;
+import java.util.List;
+
+//получатель пачек завершенных span (по умолчанию - OtlpFileSpanExporter); свой exporter
+//подключается бином этого типа в контексте
+public interface SpanExporter {
+
+	void export(List<Span> spans) throws IOException;
+}
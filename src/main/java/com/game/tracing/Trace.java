@@ -0,0 +1,135 @@
+package com.game.tracing;
+
+import com.game.metrics.RequestPhases;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+//трассировка одного запроса: id (W3C trace context) и завершенные span по фазам из RequestPhases.
+//Span создаются только для запросов из выборки. Стек открытых span ведет RequestPhases (у каждого потока,
+//выполняющего запрос, свой), сюда span попадают по завершении - из любого потока
+public class Trace {
+
+	private final long traceIdHigh;
+	private final long traceIdLow;
+	private final long remoteParentSpanId;
+	private final boolean sampled;
+	private String name;
+	private String traceId;
+
+	private long startEpochNanos;
+	private long startNanos;
+	private Span root;
+	//guarded by this
+	private final List<Span> spans;
+	private boolean finished;
+
+	//remoteParentSpanId - span вызывающей стороны из заголовка traceparent (0 - нет)
+	Trace(long traceIdHigh, long traceIdLow, long remoteParentSpanId, boolean sampled) {
+		this.traceIdHigh = traceIdHigh;
+		this.traceIdLow = traceIdLow;
+		this.remoteParentSpanId = remoteParentSpanId;
+		this.sampled = sampled;
+		this.spans = sampled ? new ArrayList<>() : null;
+	}
+
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	//32 hex-символа
+	public String getTraceId() {
+		if (traceId == null) {
+			char[] chars = new char[32];
+			hex(traceIdHigh, chars, 0);
+			hex(traceIdLow, chars, 16);
+			traceId = new String(chars);
+		}
+		return traceId;
+	}
+
+	//заголовок traceparent для ответа и исходящих вызовов (span - корневой span запроса)
+	public String toTraceparent() {
+		return "00-" + getTraceId() + "-" + hex(root == null ? remoteParentSpanId : root.getSpanId())
+				+ (sampled ? "-01" : "-00");
+	}
+
+	//имя корневого span (задается до start, нужно только запросам из выборки)
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Span getRoot() {
+		return root;
+	}
+
+	//завершенные span запроса (корневой - последним); пусто, если запрос не в выборке
+	public synchronized List<Span> getSpans() {
+		return spans == null ? Collections.emptyList() : new ArrayList<>(spans);
+	}
+
+	public void start(long nanos) {
+		startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+		startNanos = nanos;
+		if (sampled) {
+			root = new Span(this, nextSpanId(), remoteParentSpanId, name, Span.KIND_SERVER, nanos);
+		}
+	}
+
+	//открыть span фазы внутри parent (method - имя span, null - имя по фазе)
+	public Span open(Span parent, RequestPhases.Phase phase, Method method, long nanos) {
+		String phaseName = phase.name().toLowerCase(Locale.ROOT);
+		String spanName = method == null ? phaseName
+				: method.getDeclaringClass().getSimpleName() + "." + method.getName();
+		Span span = new Span(this, nextSpanId(), parent.getSpanId(), spanName, Span.KIND_INTERNAL, nanos);
+		span.setAttribute("phase", phaseName);
+		return span;
+	}
+
+	//span, закрытые после завершения запроса (работа, пережившая таймаут), не сохраняются
+	public synchronized void close(Span span, long nanos) {
+		if (!finished) {
+			span.end(nanos);
+			spans.add(span);
+		}
+	}
+
+	public synchronized void finish(long nanos) {
+		if (sampled && !finished) {
+			root.end(nanos);
+			spans.add(root);
+			finished = true;
+		}
+	}
+
+	long toEpochNanos(long nanos) {
+		return startEpochNanos + (nanos - startNanos);
+	}
+
+	static long nextSpanId() {
+		long id;
+		do {
+			id = ThreadLocalRandom.current().nextLong();
+		} while (id == 0);
+		return id;
+	}
+
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	static String hex(long value) {
+		char[] chars = new char[16];
+		hex(value, chars, 0);
+		return new String(chars);
+	}
+
+	private static void hex(long value, char[] chars, int offset) {
+		for (int i = 15; i >= 0; i--) {
+			chars[offset + i] = DIGITS[(int) (value & 0xF)];
+			value >>>= 4;
+		}
+	}
+}
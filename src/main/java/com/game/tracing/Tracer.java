@@ -0,0 +1,207 @@
+package com.game.tracing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//трассировка запросов: id есть у каждого запроса (в логах и в ответе), span пишутся только для доли sampleRate
+//(или по флагу sampled из заголовка traceparent вызывающей стороны). Завершенные span копятся в очереди
+//и отдаются exporter пачками из отдельного потока; при переполненной очереди span отбрасываются, а не
+//тормозят запросы
+@Component
+public class Tracer {
+
+	private final SpanExporter exporter;
+	private final int batchSize;
+	private final long flushMillis;
+	private final BlockingQueue<Span> queue;
+	private final Thread worker;
+	private final Object exportLock = new Object();
+
+	private volatile double sampleRate;
+
+	private final LongAdder traces = new LongAdder();
+	private final LongAdder sampled = new LongAdder();
+	private final LongAdder exported = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	//span в очереди и в пачке потока экспорта
+	private final AtomicLong pending = new AtomicLong();
+
+	public Tracer(@Value("${tracing.sampleRate:0.01}") double sampleRate,
+				  @Value("${tracing.queueSize:8192}") int queueSize,
+				  @Value("${tracing.batchSize:512}") int batchSize,
+				  @Value("${tracing.flushMillis:1000}") long flushMillis,
+				  @Value("${tracing.file:traces.jsonl}") String file,
+				  @Value("${tracing.serviceName:rpg}") String serviceName,
+				  ObjectProvider<SpanExporter> exporters) {
+		this.sampleRate = sampleRate;
+		this.batchSize = batchSize;
+		this.flushMillis = flushMillis;
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.exporter = exporters.getIfAvailable(() -> new OtlpFileSpanExporter(new File(file), serviceName));
+		this.worker = new Thread(this::run, "trace-export");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	public double getSampleRate() {
+		return sampleRate;
+	}
+
+	public void setSampleRate(double sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	//начать трассировку запроса; traceparent - заголовок вызывающей стороны (может быть null или неверным)
+	public Trace start(String traceparent) {
+		traces.increment();
+		Trace trace = fromTraceparent(traceparent);
+		if (trace == null) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			boolean sample = sampleRate > 0 && random.nextDouble() < sampleRate;
+			trace = new Trace(random.nextLong(), Trace.nextSpanId(), 0, sample);
+		}
+		if (trace.isSampled()) {
+			sampled.increment();
+		}
+		return trace;
+	}
+
+	//передать span завершенного запроса на экспорт
+	public void finish(Trace trace) {
+		if (!trace.isSampled()) {
+			return;
+		}
+		for (Span span : trace.getSpans()) {
+			pending.incrementAndGet();
+			if (!queue.offer(span)) {
+				pending.decrementAndGet();
+				dropped.increment();
+			}
+		}
+	}
+
+	//выгрузить все накопленное к этому моменту: очередь - в вызывающем потоке, пачку, которую уже собирает
+	//поток экспорта, - дождаться (не дольше flushMillis с запасом)
+	public void flush() {
+		List<Span> batch = new ArrayList<>(batchSize);
+		while (queue.drainTo(batch, batchSize) > 0) {
+			export(batch);
+			batch.clear();
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(2 * flushMillis + 1000);
+		while (pending.get() > 0 && System.nanoTime() < deadline && worker.isAlive()) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		worker.interrupt();
+		flush();
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("sampleRate", sampleRate);
+		result.put("exporter", exporter.getClass().getSimpleName());
+		if (exporter instanceof OtlpFileSpanExporter) {
+			result.put("file", ((OtlpFileSpanExporter) exporter).getFile().getAbsolutePath());
+		}
+		result.put("traces", traces.sum());
+		result.put("sampled", sampled.sum());
+		result.put("queued", queue.size());
+		result.put("exported", exported.sum());
+		result.put("dropped", dropped.sum());
+		result.put("failed", failed.sum());
+		return result;
+	}
+
+	//пачка уходит, когда набралось batchSize span или через flushMillis после первого из них
+	private void run() {
+		List<Span> batch = new ArrayList<>(batchSize);
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Span first = queue.take();
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+				while (batch.size() < batchSize) {
+					long left = deadline - System.nanoTime();
+					if (left <= 0 || queue.drainTo(batch, batchSize - batch.size()) == 0
+							&& !pollInto(batch, left)) {
+						break;
+					}
+				}
+				export(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			//остановка: собранное не теряем
+			if (!batch.isEmpty()) {
+				export(batch);
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean pollInto(List<Span> batch, long nanos) throws InterruptedException {
+		Span span = queue.poll(nanos, TimeUnit.NANOSECONDS);
+		if (span == null) {
+			return false;
+		}
+		batch.add(span);
+		return true;
+	}
+
+	private void export(List<Span> batch) {
+		synchronized (exportLock) {
+			try {
+				exporter.export(batch);
+				exported.add(batch.size());
+			} catch (Exception e) {
+				failed.add(batch.size());
+			} finally {
+				pending.addAndGet(-batch.size());
+			}
+		}
+	}
+
+	//W3C trace context: 00-<32 hex trace id>-<16 hex parent id>-<2 hex flags>
+	private static Trace fromTraceparent(String traceparent) {
+		if (traceparent == null || traceparent.length() != 55 || !traceparent.startsWith("00-")
+				|| traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+			return null;
+		}
+		try {
+			long high = Long.parseUnsignedLong(traceparent.substring(3, 19), 16);
+			long low = Long.parseUnsignedLong(traceparent.substring(19, 35), 16);
+			long parent = Long.parseUnsignedLong(traceparent.substring(36, 52), 16);
+			int flags = Integer.parseInt(traceparent.substring(53, 55), 16);
+			if ((high == 0 && low == 0) || parent == 0) {
+				return null;
+			}
+			return new Trace(high, low, parent, (flags & 1) == 1);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,2 @@
+-- то же, что db/mysql/V4, для H2 (MODIFY в H2 без режима MySQL не поддерживается)
+ALTER TABLE player ALTER COLUMN id BIGINT(20) NOT NULL;
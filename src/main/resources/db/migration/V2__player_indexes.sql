@@ -0,0 +1,10 @@
+-- индексы под сортировку PlayerOrder (id добавлен явно как стабильный tiebreak)
+CREATE INDEX player_name_id_idx ON player (name, id);
+CREATE INDEX player_experience_id_idx ON player (experience, id);
+CREATE INDEX player_birthday_id_idx ON player (birthday, id);
+CREATE INDEX player_level_id_idx ON player (level, id);
+
+-- индексы под частые сочетания фильтров: равенство по race/profession/banned + диапазон по level
+CREATE INDEX player_race_profession_level_idx ON player (race, profession, level);
+CREATE INDEX player_profession_level_idx ON player (profession, level);
+CREATE INDEX player_banned_level_idx ON player (banned, level);
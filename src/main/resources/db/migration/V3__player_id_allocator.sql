@@ -0,0 +1,10 @@
+-- счетчик id для вставок из приложения: PlayerIdAllocator выдает id блоками,
+-- поэтому Hibernate может отправлять insert пакетами (с IDENTITY пакетная вставка отключается)
+CREATE TABLE player_seq
+(
+    next_val BIGINT NOT NULL
+);
+
+INSERT INTO player_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 1
+FROM player;
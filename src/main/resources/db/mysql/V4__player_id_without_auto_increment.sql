@@ -0,0 +1,3 @@
+-- id выдает только PlayerIdAllocator (player_seq): без AUTO_INCREMENT вставка без id падает сразу,
+-- а не получает id из второго счетчика, который мог бы пересечься с блоками из player_seq
+ALTER TABLE player MODIFY id BIGINT(20) NOT NULL;
@@ -0,0 +1,76 @@
+package com.game.scale;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.service.PlayerService;
+
+import java.util.*;
+
+//детерминированный генератор игроков: игрок с номером i зависит только от seed и i, поэтому таблицу можно
+//наращивать от меньшего размера к большему, и на любом размере получаются одни и те же строки.
+//Имена и титулы - кириллица из слогов/слов, раса и профессия - по весам, уровень - через PlayerService.countLevel.
+public class PlayerGenerator {
+
+    private static final String[] SYLLABLES = {"ра", "на", "ил", "ор", "ка", "мир", "слав", "до", "ле", "ва", "гор",
+            "эль", "ин", "ту", "бор", "ми", "ск", "ан", "вел", "зар", "ли", "ун", "дар", "ош"};
+    private static final String[] ADJECTIVES = {"Храбрый", "Тихий", "Старый", "Быстрый", "Мудрый", "Темный",
+            "Светлый", "Хитрый", "Железный", "Дикий", "Северный", "Рыжий"};
+    private static final String[] NOUNS = {"Страж", "Охотник", "Странник", "Кузнец", "Волк", "Ворон", "Маг",
+            "Следопыт", "Воин", "Лучник", "Друид", "Скиталец"};
+    //2000-02-01 .. 2010-12-31, как у игроков из test.sql
+    private static final long BIRTHDAY_FROM = 949363200000L;
+    private static final long BIRTHDAY_RANGE = 1293753600000L - BIRTHDAY_FROM;
+
+    private final long seed;
+    private final Race[] races;
+    private final Profession[] professions;
+    private final PlayerService playerService;
+
+    //races/professions - веса вида "HUMAN:30,ELF:15"; не указанные значения не генерируются
+    public PlayerGenerator(long seed, String races, String professions, PlayerService playerService) {
+        this.seed = seed;
+        this.races = weighted(Race.class, races);
+        this.professions = weighted(Profession.class, professions);
+        this.playerService = playerService;
+    }
+
+    public Player generate(long index) {
+        SplittableRandom random = new SplittableRandom(seed * 1_000_003L + index);
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables && name.length() < 9; i++) {
+            name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        String title = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)];
+
+        //опыт смещен к малым значениям: у большинства игроков невысокий уровень
+        double u = random.nextDouble();
+        int experience = (int) (10_000_000 * u * u * u);
+        Player player = new Player(index, name.toString(), title, races[random.nextInt(races.length)],
+                professions[random.nextInt(professions.length)], experience, null, null,
+                new Date(BIRTHDAY_FROM + (long) (random.nextDouble() * BIRTHDAY_RANGE)), random.nextInt(10) == 0);
+        player.setLevel(playerService.countLevel(player));
+        player.setUntilNextLevel(playerService.countUntilNextLevel(player));
+        return player;
+    }
+
+    //таблица значений, где каждое повторено столько раз, каков его вес
+    private static <E extends Enum<E>> E[] weighted(Class<E> type, String weights) {
+        List<E> values = new ArrayList<>();
+        for (String part : weights.split(",")) {
+            String[] weight = part.split(":");
+            E value = Enum.valueOf(type, weight[0].trim());
+            for (int i = Integer.parseInt(weight[1].trim()); i > 0; i--) {
+                values.add(value);
+            }
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("no " + type.getSimpleName() + " weights");
+        }
+        @SuppressWarnings("unchecked")
+        E[] result = values.toArray((E[]) java.lang.reflect.Array.newInstance(type, 0));
+        return result;
+    }
+}
@@ -0,0 +1,252 @@
+package com.game.scale;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.game.config.AppConfig;
+import com.game.entity.Player;
+import com.game.entity.PlayerOrder;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerIdAllocator;
+import com.game.service.PlayerCache;
+import com.game.service.PlayerColumnStore;
+import com.game.service.PlayerNameIndex;
+import com.game.service.PlayerService;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Supplier;
+
+//проверка масштабирования поиска: таблица наращивается генератором до каждого размера из sizes,
+//на каждом размере замеряется каждый фильтр x сортировка (первая и дальняя страница) и подсчет.
+//Для каждого запроса считается показатель роста: log(t2/t1) / log(n2/n1) между соседними размерами
+//(1.0 - время растет линейно с числом игроков). Больше budget - запрос не проходит, код выхода 1.
+//Запуск: mvn -Pscale test-compile exec:exec@scale -Dscale.args="sizes=100000,1000000 budget=1.1"
+//Аргументы (key=value): sizes, seed, races, professions (веса "HUMAN:30,ELF:15"), repeats, budget,
+//minMillis (более быстрые запросы в проверку бюджета не попадают - это шум), report, profile (dev - H2).
+public class ScaleSuite {
+
+    //именованный набор фильтров для findAllByParams/findAllByParamsAndCount
+    private static class Filter {
+        private final String name;
+        private final String playerName;
+        private final String title;
+        private final Race race;
+        private final Profession profession;
+        private final Date after;
+        private final Date before;
+        private final Boolean banned;
+        private final Integer minExperience;
+        private final Integer maxExperience;
+        private final Integer minLevel;
+        private final Integer maxLevel;
+
+        private Filter(String name, String playerName, String title, Race race, Profession profession, Date after,
+                       Date before, Boolean banned, Integer minExperience, Integer maxExperience, Integer minLevel,
+                       Integer maxLevel) {
+            this.name = name;
+            this.playerName = playerName;
+            this.title = title;
+            this.race = race;
+            this.profession = profession;
+            this.after = after;
+            this.before = before;
+            this.banned = banned;
+            this.minExperience = minExperience;
+            this.maxExperience = maxExperience;
+            this.minLevel = minLevel;
+            this.maxLevel = maxLevel;
+        }
+    }
+
+    private static final List<Filter> FILTERS = Arrays.asList(
+            new Filter("none", null, null, null, null, null, null, null, null, null, null, null),
+            new Filter("race", null, null, Race.ELF, null, null, null, null, null, null, null, null),
+            new Filter("race+profession", null, null, Race.DWARF, Profession.CLERIC, null, null, null, null, null, null, null),
+            new Filter("banned", null, null, null, null, null, null, true, null, null, null, null),
+            new Filter("experience", null, null, null, null, null, null, null, 100000, 500000, null, null),
+            new Filter("level", null, null, null, null, null, null, null, null, null, 100, 150),
+            new Filter("birthday", null, null, null, null, new Date(1104537600000L), new Date(1136073600000L),
+                    null, null, null, null, null),
+            new Filter("name", "ра", null, null, null, null, null, null, null, null, null, null),
+            new Filter("title", null, "Тихий", null, null, null, null, null, null, null, null, null),
+            new Filter("race+level+banned", null, null, Race.HUMAN, null, null, null, false, null, null, 10, 300));
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 100;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("profile", "dev");
+        options.put("sizes", "100000,200000,400000");
+        options.put("seed", "42");
+        options.put("races", "HUMAN:30,ELF:15,DWARF:15,ORC:12,HOBBIT:12,TROLL:8,GIANT:8");
+        options.put("professions", "WARRIOR:20,ROGUE:15,SORCERER:12,CLERIC:12,PALADIN:10,DRUID:10,WARLOCK:10,NAZGUL:11");
+        options.put("repeats", "5");
+        options.put("budget", "1.1");
+        options.put("minMillis", "5");
+        options.put("report", "target/scale-report.json");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("expected key=value: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!"dev".equals(options.get("profile")) && !"true".equals(options.get("allowDestroy"))) {
+            throw new IllegalArgumentException("the suite deletes all players; pass allowDestroy=true for " + options.get("profile"));
+        }
+
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles(options.get("profile"));
+        context.register(AppConfig.class);
+        context.refresh();
+        boolean failed;
+        try {
+            failed = run(context, options);
+        } finally {
+            context.close();
+        }
+        //выход только после закрытия контекста: System.exit внутри try не дал бы выполниться finally
+        System.exit(failed ? 1 : 0);
+    }
+
+    private static boolean run(AnnotationConfigWebApplicationContext context, Map<String, String> options)
+            throws Exception {
+        PlayerService playerService = context.getBean(PlayerService.class);
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean("dataSource", DataSource.class));
+        PlayerGenerator generator = new PlayerGenerator(Long.parseLong(options.get("seed")), options.get("races"),
+                options.get("professions"), playerService);
+        int repeats = Integer.parseInt(options.get("repeats"));
+        double budget = Double.parseDouble(options.get("budget"));
+        double minMillis = Double.parseDouble(options.get("minMillis"));
+
+        jdbc.update("DELETE FROM player");
+        long size = 0;
+        List<Long> sizes = new ArrayList<>();
+        //запрос -> медиана в мс на каждом размере
+        Map<String, List<Double>> timings = new LinkedHashMap<>();
+        for (String value : options.get("sizes").split(",")) {
+            long target = Long.parseLong(value.trim());
+            long started = System.nanoTime();
+            insert(jdbc, generator, size, target);
+            size = target;
+            sizes.add(size);
+            resetCaches(context);
+            System.out.printf("%d players generated in %d ms%n", size, (System.nanoTime() - started) / 1_000_000);
+
+            for (Filter filter : FILTERS) {
+                for (PlayerOrder order : PlayerOrder.values()) {
+                    for (int page : new int[]{0, DEEP_PAGE}) {
+                        time(timings, filter.name + " order=" + order + " page=" + page, repeats,
+                                () -> playerService.findAllByParams(filter.playerName, filter.title, filter.race,
+                                        filter.profession, filter.after, filter.before, filter.banned,
+                                        filter.minExperience, filter.maxExperience, filter.minLevel, filter.maxLevel,
+                                        order, page, PAGE_SIZE));
+                    }
+                }
+                time(timings, filter.name + " count", repeats,
+                        () -> playerService.findAllByParamsAndCount(filter.playerName, filter.title, filter.race,
+                                filter.profession, filter.after, filter.before, filter.banned, filter.minExperience,
+                                filter.maxExperience, filter.minLevel, filter.maxLevel));
+            }
+        }
+
+        List<Map<String, Object>> queries = new ArrayList<>();
+        boolean failed = false;
+        for (Map.Entry<String, List<Double>> entry : timings.entrySet()) {
+            List<Double> millis = entry.getValue();
+            double worst = 0;
+            for (int i = 1; i < millis.size(); i++) {
+                if (millis.get(i) < minMillis) {
+                    continue;
+                }
+                double growth = Math.log(millis.get(i) / Math.max(millis.get(i - 1), 0.001))
+                        / Math.log((double) sizes.get(i) / sizes.get(i - 1));
+                worst = Math.max(worst, growth);
+            }
+            boolean overBudget = worst > budget;
+            failed |= overBudget;
+            Map<String, Object> query = new LinkedHashMap<>();
+            query.put("query", entry.getKey());
+            query.put("millis", millis);
+            query.put("growth", worst);
+            query.put("overBudget", overBudget);
+            queries.add(query);
+            System.out.printf("%-45s %s growth=%.2f%s%n", entry.getKey(), millis, worst, overBudget ? " OVER BUDGET" : "");
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sizes", sizes);
+        report.put("budget", budget);
+        report.put("failed", failed);
+        report.put("queries", queries);
+        File file = new File(options.get("report"));
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        return failed;
+    }
+
+    //дописать игроков с номерами (from, to] пакетами JDBC, мимо JPA
+    private static void insert(JdbcTemplate jdbc, PlayerGenerator generator, long from, long to) {
+        final int batch = 5000;
+        for (long start = from; start < to; start += batch) {
+            long first = start + 1;
+            int count = (int) Math.min(batch, to - start);
+            jdbc.batchUpdate("INSERT INTO player(id, name, title, race, profession, birthday, banned, experience, "
+                    + "level, untilNextLevel) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    Player player = generator.generate(first + i);
+                    statement.setLong(1, player.getId());
+                    statement.setString(2, player.getName());
+                    statement.setString(3, player.getTitle());
+                    statement.setString(4, player.getRace().name());
+                    statement.setString(5, player.getProfession().name());
+                    statement.setDate(6, new java.sql.Date(player.getBirthday().getTime()));
+                    statement.setBoolean(7, player.getBanned());
+                    statement.setInt(8, player.getExperience());
+                    statement.setInt(9, player.getLevel());
+                    statement.setInt(10, player.getUntilNextLevel());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+        jdbc.update("UPDATE player_seq SET next_val = ?", to + 1);
+    }
+
+    //строки вставлены в обход сервиса - индексы в памяти и кэш строятся заново
+    private static void resetCaches(AnnotationConfigWebApplicationContext context) {
+        context.getBean(PlayerNameIndex.class).invalidate();
+        context.getBean(PlayerColumnStore.class).invalidate();
+        context.getBean(PlayerCache.class).invalidateAll();
+        context.getBean(PlayerIdAllocator.class).reset();
+    }
+
+    //медиана repeats замеров в мс; первый вызов - прогрев (и построение индексов в памяти), не считается
+    private static void time(Map<String, List<Double>> timings, String query, int repeats, Supplier<?> action) {
+        action.get();
+        double[] millis = new double[repeats];
+        for (int i = 0; i < repeats; i++) {
+            long start = System.nanoTime();
+            action.get();
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        Arrays.sort(millis);
+        timings.computeIfAbsent(query, key -> new ArrayList<>()).add(millis[repeats / 2]);
+    }
+}
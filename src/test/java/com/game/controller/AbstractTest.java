@@ -3,6 +3,10 @@ package com.game.controller;
 import com.game.config.AppConfig;
 import com.game.config.MyWebAppInit;
 import com.game.config.WebConfig;
+import com.game.repository.PlayerIdAllocator;
+import com.game.service.PlayerCache;
+import com.game.service.PlayerColumnStore;
+import com.game.service.PlayerNameIndex;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,14 +29,44 @@ public abstract class AbstractTest {
 
     WebApplicationContext context;
     MockMvc mockMvc;
+    PlayerNameIndex playerNameIndex;
+    PlayerColumnStore playerColumnStore;
+    PlayerCache playerCache;
+    PlayerIdAllocator playerIdAllocator;
 
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
     }
 
+    @Autowired
+    public void setPlayerNameIndex(PlayerNameIndex playerNameIndex) {
+        this.playerNameIndex = playerNameIndex;
+    }
+
+    @Autowired
+    public void setPlayerColumnStore(PlayerColumnStore playerColumnStore) {
+        this.playerColumnStore = playerColumnStore;
+    }
+
+    @Autowired
+    public void setPlayerCache(PlayerCache playerCache) {
+        this.playerCache = playerCache;
+    }
+
+    @Autowired
+    public void setPlayerIdAllocator(PlayerIdAllocator playerIdAllocator) {
+        this.playerIdAllocator = playerIdAllocator;
+    }
+
     @Before
     public void setup() {
+        //test.sql заново заливает таблицу в обход сервиса - индексы в памяти перестраиваем
+        playerNameIndex.invalidate();
+        playerColumnStore.invalidate();
+        playerCache.invalidateAll();
+        playerIdAllocator.reset();
+
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(context)
                 .addFilter(((request, response, chain) -> {
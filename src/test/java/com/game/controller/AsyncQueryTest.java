@@ -0,0 +1,137 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.service.QueryExecutor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AsyncQueryTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void fullQueueAnswers503AndLeavesOtherEndpoints() throws Exception {
+        QueryExecutor queryExecutor = context.getBean(QueryExecutor.class);
+        JsonNode before = snapshot();
+        int capacity = before.get("threads").asInt() + before.get("queueCapacity").asInt();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> blockers = new ArrayList<>();
+        long rejectedWhileFilling = 0;
+        try {
+            //занимаем все потоки и очередь (простаивавшие потоки разбирают очередь не сразу - добиваем до полной)
+            for (int attempt = 0; attempt < 100 && !saturated(queryExecutor); attempt++) {
+                CompletableFuture<Boolean> blocker = queryExecutor.submit(() -> await(release));
+                while (!blocker.isCompletedExceptionally()) {
+                    blockers.add(blocker);
+                    blocker = queryExecutor.submit(() -> await(release));
+                }
+                rejectedWhileFilling++;
+                Thread.sleep(20);
+            }
+            assertTrue("Пул не ограничен.", saturated(queryExecutor) && blockers.size() <= capacity);
+
+            TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            TestsHelper.performAsync(mockMvc, get("/rest/players/count"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+            mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+        } finally {
+            release.countDown();
+        }
+        for (CompletableFuture<Boolean> blocker : blockers) {
+            assertTrue("Задача пула не выполнена.", blocker.get(10, TimeUnit.SECONDS));
+        }
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(status().isOk()).andExpect(content().string("40"));
+        assertEquals("Отказы не посчитаны.", before.get("rejected").asLong() + rejectedWhileFilling + 2,
+                snapshot().get("rejected").asLong());
+    }
+
+    //test2
+    @Test
+    public void queuedQueryIsDroppedOnTimeout() throws Exception {
+        QueryExecutor queryExecutor = new QueryExecutor(1, 1, 100, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        try {
+            CompletableFuture<Boolean> running = queryExecutor.submit(() -> await(release));
+            CompletableFuture<Boolean> queued = queryExecutor.submit(() -> queuedRan.getAndSet(true));
+            CompletableFuture<Boolean> rejected = queryExecutor.submit(() -> true);
+
+            assertOverloaded(rejected);
+            assertOverloaded(queued);
+            assertOverloaded(running);
+            release.countDown();
+            for (int attempt = 0; attempt < 500 && !idle(queryExecutor); attempt++) {
+                Thread.sleep(10);
+            }
+            assertEquals("После таймаута пул не освободился.", "ok", queryExecutor.submit(() -> "ok").get(10, TimeUnit.SECONDS));
+            assertFalse("Задача из очереди выполнена после таймаута.", queuedRan.get());
+            assertEquals("Таймауты не посчитаны.", 2L, queryExecutor.snapshot().get("timedOut"));
+        } finally {
+            release.countDown();
+            queryExecutor.shutdown();
+        }
+    }
+
+    private static boolean idle(QueryExecutor queryExecutor) {
+        Map<String, Object> snapshot = queryExecutor.snapshot();
+        return snapshot.get("active").equals(0) && snapshot.get("queued").equals(0);
+    }
+
+    private static boolean saturated(QueryExecutor queryExecutor) {
+        Map<String, Object> snapshot = queryExecutor.snapshot();
+        return snapshot.get("active").equals(snapshot.get("threads"))
+                && snapshot.get("queued").equals(snapshot.get("queueCapacity"));
+    }
+
+    private static void assertOverloaded(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Ожидался отказ пула.");
+        } catch (ExecutionException e) {
+            assertTrue("Ожидался отказ пула: " + e.getCause(), QueryExecutor.isOverloaded(e.getCause()));
+        } catch (TimeoutException e) {
+            fail("Таймаут пула не сработал.");
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private JsonNode snapshot() throws Exception {
+        String content = mockMvc.perform(get("/rest/admin/query-executor"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
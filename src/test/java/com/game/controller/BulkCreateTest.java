@@ -0,0 +1,74 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BulkCreateTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void bulkCreateReportsEveryItem() throws Exception {
+        String body = "[" + TestsHelper.NORMAL_JSON + ","
+                + TestsHelper.TOO_BIG_EXPERIENCE_JSON + ","
+                + TestsHelper.BANNED_TRUE_JSON + ","
+                + "{}" + "]";
+
+        String content = mockMvc.perform(post("/rest/players/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode results = mapper.readTree(content);
+
+        assertEquals(4, results.size());
+        assertEquals("CREATED", results.get(0).get("status").asText());
+        assertEquals(41L, results.get(0).get("id").asLong());
+        assertEquals("INVALID", results.get(1).get("status").asText());
+        assertEquals("CREATED", results.get(2).get("status").asText());
+        assertEquals(42L, results.get(2).get("id").asLong());
+        assertEquals("INVALID", results.get(3).get("status").asText());
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(content().string("42"));
+        String created = mockMvc.perform(get("/rest/players/42"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Уровень не посчитан при пакетном создании.", 35, mapper.readTree(created).get("level").asInt());
+    }
+
+    //test2
+    @Test
+    public void bulkCreateKeepsIdsUniqueWithSingleCreate() throws Exception {
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 120; i++) {
+            body.append(i == 0 ? "" : ",").append(TestsHelper.NORMAL_JSON);
+        }
+        body.append("]");
+        mockMvc.perform(post("/rest/players/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.toString()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(content().string("162"));
+    }
+}
@@ -0,0 +1,153 @@
+package com.game.controller;
+
+import com.game.entity.Player;
+import com.game.entity.PlayerOrder;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerColumnStore;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+//колоночный снимок должен отвечать так же, как запрос в базу
+public class ColumnStoreTest extends AbstractTest {
+
+    private PlayerRepository playerRepository;
+
+    @Autowired
+    public void setPlayerRepository(PlayerRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    private List<PlayerFilter> filters() {
+        return Arrays.asList(
+                new PlayerFilter(null, null, null, null, null, null, null, null, null, null, null),
+                new PlayerFilter(null, null, Race.ELF, null, null, null, null, null, null, null, null),
+                new PlayerFilter(null, null, Race.DWARF, Profession.CLERIC, null, null, true, null, null, null, null),
+                new PlayerFilter(null, null, null, null, null, null, false, null, null, 10, 30),
+                new PlayerFilter(null, null, null, null, null, null, null, 30000, 100000, null, null),
+                new PlayerFilter(null, null, null, null, new Date(1104530400000L), new Date(1230760800000L), null, null, null, null, null),
+                new PlayerFilter("ра", null, null, null, null, null, null, null, null, null, 50),
+                new PlayerFilter(null, "ий", Race.HUMAN, null, null, null, null, null, null, null, null),
+                new PlayerFilter("и_с", null, null, null, null, null, null, null, null, null, null));
+    }
+
+    //test1
+    @Test
+    public void findMatchesDatabaseForEveryOrder() {
+        PlayerColumnStore store = new PlayerColumnStore(playerRepository, true);
+        for (PlayerFilter filter : filters()) {
+            for (PlayerOrder order : PlayerOrder.values()) {
+                Sort sort = order == PlayerOrder.ID ? Sort.by("id") : Sort.by(order.getFieldName(), "id");
+                List<Long> expected = ids(playerRepository.findAllByFilter(filter, PageRequest.of(1, 4, sort)));
+                List<Long> actual = ids(store.find(filter, order, 1, 4));
+                assertEquals("Снимок вернул другую страницу для " + filter + " order=" + order, expected, actual);
+            }
+        }
+    }
+
+    //test2
+    @Test
+    public void countMatchesDatabase() {
+        PlayerColumnStore store = new PlayerColumnStore(playerRepository, true);
+        for (PlayerFilter filter : filters()) {
+            assertEquals("Снимок вернул другое количество для " + filter,
+                    playerRepository.countByFilter(filter), store.count(filter));
+        }
+    }
+
+    //test3
+    @Test
+    public void snapshotFollowsWrites() {
+        PlayerColumnStore store = new PlayerColumnStore(playerRepository, true);
+        PlayerFilter elves = new PlayerFilter(null, null, Race.ELF, null, null, null, null, null, null, null, null);
+        long before = store.count(elves);
+
+        Player player = playerRepository.findById(1L).get();
+        player.setRace(Race.ELF);
+        store.put(player);
+        store.remove(6L);
+
+        assertEquals(before, store.count(elves));
+        assertEquals(Long.valueOf(1L), store.find(elves, PlayerOrder.ID, 0, 1).get(0).getId());
+    }
+
+    //test4
+    @Test
+    public void refreshExperienceReadsCommittedValues() {
+        PlayerColumnStore store = new PlayerColumnStore(playerRepository, true);
+        PlayerFilter top = new PlayerFilter(null, null, null, null, null, null, null, 1000000, null, null, null);
+        assertEquals(0, store.count(top));
+
+        Player player = playerRepository.findById(3L).get();
+        player.setExperience(1000000);
+        player.setLevel(1413);
+        playerRepository.save(player);
+        store.refreshExperience(Collections.singletonList(3L));
+
+        assertEquals(1, store.count(top));
+        assertEquals(Integer.valueOf(1413), store.find(top, PlayerOrder.ID, 0, 1).get(0).getLevel());
+    }
+
+    //test5
+    @Test
+    public void writesKeepSortedOrdersWithoutReload() {
+        //в первом снимке перестановки построены до записей и дальше правятся по строке,
+        //во втором - строятся уже после тех же записей
+        PlayerColumnStore incremental = new PlayerColumnStore(playerRepository, true);
+        PlayerColumnStore rebuilt = new PlayerColumnStore(playerRepository, true);
+        for (PlayerOrder order : PlayerOrder.values()) {
+            incremental.find(filters().get(0), order, 0, 1);
+        }
+        rebuilt.count(filters().get(0));
+        long generation = (Long) ReflectionTestUtils.getField(incremental, "generation");
+
+        for (PlayerColumnStore store : Arrays.asList(incremental, rebuilt)) {
+            store.put(new Player(1000L, "Яромир", "Старший", Race.ELF, Profession.DRUID, 40000, 27, 600,
+                    new Date(1104537600000L), false));
+            //id меньше последнего: блок PlayerIdAllocator, выданный раньше
+            store.put(new Player(900L, "Аглая", "Младшая", Race.ELF, Profession.DRUID, 40000, 27, 600,
+                    new Date(1104537600000L), false));
+            Player player = playerRepository.findById(7L).get();
+            player.setName("Ёжик");
+            player.setExperience(35000);
+            store.put(player);
+            store.remove(12L);
+        }
+
+        for (PlayerFilter filter : filters()) {
+            for (PlayerOrder order : PlayerOrder.values()) {
+                for (int page = 0; page < 3; page++) {
+                    assertEquals("Порядок после записей разошелся для " + filter + " order=" + order + " page=" + page,
+                            ids(rebuilt.find(filter, order, page, 4)), ids(incremental.find(filter, order, page, 4)));
+                }
+            }
+            assertEquals("Количество после записей разошлось для " + filter,
+                    rebuilt.count(filter), incremental.count(filter));
+        }
+        assertEquals("Запись с id меньше последнего перечитала снимок из базы.",
+                generation, ReflectionTestUtils.getField(incremental, "generation"));
+        assertEquals(Arrays.asList(900L, 1000L), ids(incremental.find(new PlayerFilter(null, null, null,
+                Profession.DRUID, null, null, null, 40000, 40000, null, null), PlayerOrder.ID, 0, 10)));
+    }
+
+    private static List<Long> ids(List<Player> players) {
+        List<Long> result = new ArrayList<>();
+        for (Player player : players) {
+            result.add(player.getId());
+        }
+        return result;
+    }
+}
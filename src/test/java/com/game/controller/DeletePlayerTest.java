@@ -39,4 +39,14 @@ public class DeletePlayerTest extends AbstractTest {
         mockMvc.perform(get("/rest/players/1"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    //test5
+    @Test
+    public void deletePlayerTwiceTest() throws Exception {
+        mockMvc.perform(delete("/rest/players/2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/rest/players/2"))
+                .andExpect(status().isNotFound());
+    }
+}
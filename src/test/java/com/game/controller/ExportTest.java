@@ -0,0 +1,66 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void exportNdjsonMatchesGetAll() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/export?race=HUMAN&order=NAME"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = Arrays.asList(content.split("\n"));
+
+        String expected = TestsHelper.performAsync(mockMvc, get("/rest/players?race=HUMAN&order=NAME&pageSize=100"))
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> expectedPlayers = new ArrayList<>();
+        mapper.readTree(expected).forEach(expectedPlayers::add);
+
+        assertEquals("Выгружено другое кол-во игроков.", expectedPlayers.size(), lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals("Строка выгрузки отличается от GET /rest/players.", expectedPlayers.get(i), mapper.readTree(lines.get(i)));
+        }
+    }
+
+    //test2
+    @Test
+    public void exportCsv() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/export?format=CSV"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = Arrays.asList(content.split("\n"));
+
+        assertEquals("Заголовок CSV.", "id,name,title,race,profession,birthday,banned,experience,level,untilNextLevel", lines.get(0));
+        assertEquals("Выгружены не все игроки.", 41, lines.size());
+        String[] fields = lines.get(1).split(",");
+        assertEquals("Строка CSV.", Arrays.asList("1", "Ниус", "Приходящий Без Шума", "HOBBIT", "ROGUE"),
+                Arrays.asList(fields).subList(0, 5));
+        assertEquals("Строка CSV.", Arrays.asList("false", "58347", "33", "1153"), Arrays.asList(fields).subList(6, 10));
+    }
+
+    //test3
+    @Test
+    public void exportEmptyAndBadFormat() throws Exception {
+        mockMvc.perform(get("/rest/players/export?name=qqqqq"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/rest/players/export?format=XML"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -2,6 +2,7 @@ package com.game.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.entity.PlayerOrder;
 import com.game.entity.Profession;
 import com.game.entity.Race;
 import com.game.controller.utils.PlayerInfoTest;
@@ -11,6 +12,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.test.util.AssertionErrors.assertEquals;
@@ -27,7 +29,7 @@ public class GetAllTest extends AbstractTest {
     //test1
     @Test
     public void getAllWithoutFiltersReturnAllPlayers() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -42,7 +44,7 @@ public class GetAllTest extends AbstractTest {
     //test2
     @Test
     public void getAllWithFiltersNamePageNumber() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?name=ра&pageNumber=1"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?name=ра&pageNumber=1"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -58,7 +60,7 @@ public class GetAllTest extends AbstractTest {
     //test3
     @Test
     public void getAllWithFiltersTitlePageSize() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?title=ой&pageSize=4"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?title=ой&pageSize=4"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -76,7 +78,7 @@ public class GetAllTest extends AbstractTest {
     public void getAllWithFiltersRaceProfessionAfterBefore() throws Exception {
         //after 00:00 01.01.2003
         //before 00:00 01.01.2006
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?race=HUMAN&profession=WARRIOR&after=1041372000000&before=1136066400000"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?race=HUMAN&profession=WARRIOR&after=1041372000000&before=1136066400000"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -97,7 +99,7 @@ public class GetAllTest extends AbstractTest {
     //test5
     @Test
     public void getAllWithFiltersRaceProfessionMinExperienceMaxExperience() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?race=ELF&profession=SORCERER&minExperience=50000&maxExperience=150000"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF&profession=SORCERER&minExperience=50000&maxExperience=150000"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -117,7 +119,7 @@ public class GetAllTest extends AbstractTest {
     //test6
     @Test
     public void getAllWithFiltersBannedMinLevelMaxLevel() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?banned=false&minLevel=10&maxLevel=30"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?banned=false&minLevel=10&maxLevel=30"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -136,7 +138,7 @@ public class GetAllTest extends AbstractTest {
     //test7
     @Test
     public void getAllWithFiltersBannedMaxLevel() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?banned=false&maxLevel=20"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?banned=false&maxLevel=20"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -156,7 +158,7 @@ public class GetAllTest extends AbstractTest {
     public void getAllWithFiltersAfterBeforeMinExperienceMaxExperience() throws Exception {
         //after 00:00 01.01.2005
         //before 00:00 01.01.2009
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?after=1104530400000&before=1230760800000&minExperience=30000&maxExperience=100000&pageNumber=1"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?after=1104530400000&before=1230760800000&minExperience=30000&maxExperience=100000&pageNumber=1"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -178,7 +180,7 @@ public class GetAllTest extends AbstractTest {
     public void getAllWithFiltersAfterBefore() throws Exception {
         //after 00:00 01.01.2005
         //before 00:00 01.01.2009
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?after=1104530400000&before=1230760800000&pageNumber=1"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?after=1104530400000&before=1230760800000&pageNumber=1"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -195,7 +197,7 @@ public class GetAllTest extends AbstractTest {
 
     @Test
     public void getAllWithFiltersMinExperienceMaxExperience() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/players?minExperience=30000&maxExperience=100000&pageNumber=1"))
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?minExperience=30000&maxExperience=100000&pageNumber=1"))
                 .andExpect(status().isOk());
 
         MvcResult result = resultActions.andReturn();
@@ -209,4 +211,66 @@ public class GetAllTest extends AbstractTest {
 
         assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами after, before, minExperience и maxExperience.", expected, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getAllWithOrderLevelPageNumber() throws Exception {
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?order=LEVEL&pageNumber=2&pageSize=5"))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        String contentAsString = result.getResponse().getContentAsString();
+
+        List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(2, 5,
+                testsHelper.getPlayerInfosByOrder(PlayerOrder.LEVEL,
+                        testsHelper.getAllPlayers()));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами order и pageNumber.", expected, actual);
+    }
+
+    @Test
+    public void getAllWithFiltersRaceOrderExperience() throws Exception {
+        ResultActions resultActions = TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF&order=EXPERIENCE&pageSize=10"))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        String contentAsString = result.getResponse().getContentAsString();
+
+        List<PlayerInfoTest> actual = mapper.readValue(contentAsString, typeReference);
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(0, 10,
+                testsHelper.getPlayerInfosByOrder(PlayerOrder.EXPERIENCE,
+                        testsHelper.getPlayerInfosByRace(Race.ELF,
+                                testsHelper.getAllPlayers())));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами race и order.", expected, actual);
+    }
+
+    @Test
+    public void getAllWithCursorWalksAllPages() throws Exception {
+        List<PlayerInfoTest> actual = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MvcResult result = TestsHelper.performAsync(mockMvc, get("/rest/players?banned=false&order=LEVEL&pageSize=7&cursor=" + cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            actual.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader(PlayerController.NEXT_CURSOR_HEADER);
+        }
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByOrder(PlayerOrder.LEVEL,
+                testsHelper.getPlayerInfosByBaned(false,
+                        testsHelper.getAllPlayers()));
+
+        assertEquals("Возвращается не правильный результат при постраничном запросе GET /rest/players с параметром cursor.", expected, actual);
+    }
+
+    @Test
+    public void getAllWithCursorOfOtherOrderReturnsBadRequest() throws Exception {
+        MvcResult result = TestsHelper.performAsync(mockMvc, get("/rest/players?order=NAME&pageSize=2&cursor="))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = result.getResponse().getHeader(PlayerController.NEXT_CURSOR_HEADER);
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players?order=EXPERIENCE&pageSize=2&cursor=" + cursor))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,118 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.service.PlayerService;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GrantExperienceTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void grantByIdsRecountsLevel() throws Exception {
+        mockMvc.perform(post("/rest/players/experience?delta=1000")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 3, 3, 1000]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+
+        assertPlayer(1, 59347);
+        assertPlayer(3, 1804);
+        assertPlayer(2, 174403);
+    }
+
+    //test2
+    @Test
+    public void grantIsClamped() throws Exception {
+        mockMvc.perform(post("/rest/players/experience?delta=10000000")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[2]"))
+                .andExpect(status().isOk());
+        assertPlayer(2, 10000000);
+
+        mockMvc.perform(post("/rest/players/experience?delta=-10000")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[3]"))
+                .andExpect(status().isOk());
+        assertPlayer(3, 0);
+
+        mockMvc.perform(post("/rest/players/experience?delta=10000001")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[3]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test3
+    @Test
+    public void grantByFilter() throws Exception {
+        mockMvc.perform(post("/rest/players/experience?delta=500&race=HOBBIT"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("3"));
+
+        assertPlayer(1, 58847);
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?race=HOBBIT&minExperience=58847&maxExperience=58847"))
+                .andExpect(content().string("1"));
+    }
+
+    //test4
+    @Test
+    public void incrementReturnsNewValues() throws Exception {
+        String content = mockMvc.perform(post("/rest/players/1/experience?delta=1653"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode player = mapper.readTree(content);
+        assertEquals("Опыт не прибавлен.", 60000, player.get("experience").asInt());
+        assertEquals("Уровень не пересчитан.", 34, player.get("level").asInt());
+        assertPlayer(1, 60000);
+
+        mockMvc.perform(post("/rest/players/1000/experience?delta=1")).andExpect(status().isNotFound());
+        mockMvc.perform(post("/rest/players/0/experience?delta=1")).andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/1/experience")).andExpect(status().isBadRequest());
+    }
+
+    //test5
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        PlayerService playerService = context.getBean(PlayerService.class);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> playerService.addExperience(2L, 10)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertPlayer(2, 174403 + 2000);
+    }
+
+    private void assertPlayer(long id, int experience) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode player = mapper.readTree(content);
+        int level = (int) ((Math.sqrt(2500 + 200 * experience) - 50) / 100);
+
+        assertEquals("Опыт начислен неверно.", experience, player.get("experience").asInt());
+        assertEquals("Уровень не пересчитан.", level, player.get("level").asInt());
+        assertEquals("Опыт до следующего уровня не пересчитан.",
+                50 * (level + 1) * (level + 2) - experience, player.get("untilNextLevel").asInt());
+    }
+}
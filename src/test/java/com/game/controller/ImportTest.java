@@ -0,0 +1,151 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.TestsHelper;
+import com.game.service.ImportReport;
+import com.game.service.PlayerImporter;
+import com.game.service.PlayerService;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ImportTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void importExportedNdjson() throws Exception {
+        String exported = mockMvc.perform(get("/rest/players/export?race=HOBBIT"))
+                .andReturn().getResponse().getContentAsString();
+        String body = exported + "{oops\n\n" + TestsHelper.TOO_BIG_EXPERIENCE_JSON + "\n";
+
+        JsonNode report = importBody("NDJSON", body);
+
+        assertEquals("Всего строк.", 5, report.get("total").asInt());
+        assertEquals("Создано.", 3, report.get("created").asInt());
+        assertEquals("Ошибок разбора и проверки.", 2, report.get("invalid").asInt());
+        assertEquals("Номер строки с ошибкой.", 4, report.get("errors").get(0).get("line").asInt());
+        assertEquals("Номер строки с ошибкой.", 6, report.get("errors").get(1).get("line").asInt());
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?race=HOBBIT")).andExpect(content().string("6"));
+    }
+
+    //test2
+    @Test
+    public void importCsvWithQuotesAndOwnColumnOrder() throws Exception {
+        String body = "title,name,race,profession,birthday,experience\n"
+                + "\"Хитрый, \"\"быстрый\"\"\",Новый,ELF,WARRIOR,1104530400000,1000\n"
+                + "Без расы,Второй,,WARRIOR,1104530400000,1000\n";
+
+        JsonNode report = importBody("CSV", body);
+
+        assertEquals("Создано.", 1, report.get("created").asInt());
+        assertEquals("Номер строки с ошибкой.", 3, report.get("errors").get(0).get("line").asInt());
+        String created = mockMvc.perform(get("/rest/players/41")).andReturn().getResponse().getContentAsString();
+        JsonNode player = mapper.readTree(created);
+        assertEquals("Поле в кавычках.", "Хитрый, \"быстрый\"", player.get("title").asText());
+        assertEquals("Уровень не посчитан.", 4, player.get("level").asInt());
+        assertEquals("banned по умолчанию.", false, player.get("banned").asBoolean());
+
+        mockMvc.perform(post("/rest/players/import?format=CSV")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("name,color\nA,red\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test3
+    @Test
+    public void smallQueueAndErrorLimit() throws Exception {
+        PlayerImporter importer = new PlayerImporter(context.getBean(PlayerService.class), 2, 1, 1, 1, 1);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            body.append(i % 2 == 0 ? TestsHelper.NORMAL_JSON : "[]").append('\n');
+        }
+        PlayerLineParser parser = new PlayerLineParser(PlayerFormat.NDJSON, null);
+
+        ImportReport report = importer.importPlayers(new BufferedReader(new StringReader(body.toString())), 1, parser::parse);
+        importer.shutdown();
+
+        assertEquals("Создано.", 4, report.getCreated());
+        assertEquals("Ошибок.", 3, report.getInvalid());
+        assertEquals("Ошибки в ответе не ограничены.", 1, report.getErrors().size());
+        assertEquals("Ошибки в ответе не ограничены.", true, report.isErrorsTruncated());
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(content().string("44"));
+    }
+
+    //test4
+    @Test
+    public void importCsvFieldWithLineBreak() throws Exception {
+        String body = "name,title,race,profession,birthday,experience\n"
+                + "Новый,\"Первая строка\nвторая\",ELF,WARRIOR,1104530400000,1000\n"
+                + "Второй,Без расы,,WARRIOR,1104530400000,1000\n";
+
+        JsonNode report = importBody("CSV", body);
+
+        assertEquals("Всего записей.", 2, report.get("total").asInt());
+        assertEquals("Создано.", 1, report.get("created").asInt());
+        assertEquals("Номер строки с ошибкой.", 4, report.get("errors").get(0).get("line").asInt());
+        String created = mockMvc.perform(get("/rest/players/41")).andReturn().getResponse().getContentAsString();
+        assertEquals("Перевод строки в поле.", "Первая строка\nвторая", mapper.readTree(created).get("title").asText());
+    }
+
+    //test5
+    @Test
+    public void busyWritersRejectImport() throws Exception {
+        PlayerImporter importer = new PlayerImporter(context.getBean(PlayerService.class), 2, 1, 1, 1, 1);
+        PlayerLineParser parser = new PlayerLineParser(PlayerFormat.NDJSON, null);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        //первая загрузка ждет тело запроса и держит единственный пишущий поток
+        BufferedReader slow = new BufferedReader(new StringReader("")) {
+            @Override
+            public String readLine() {
+                reading.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        FutureTask<ImportReport> running = new FutureTask<>(() -> importer.importPlayers(slow, 1, parser::parse));
+        new Thread(running).start();
+        reading.await(5, TimeUnit.SECONDS);
+
+        boolean rejected = false;
+        try {
+            importer.importPlayers(new BufferedReader(new StringReader("")), 1, parser::parse);
+        } catch (RejectedExecutionException e) {
+            rejected = true;
+        }
+        finish.countDown();
+
+        assertEquals("Вторая загрузка не отклонена.", true, rejected);
+        assertEquals("Первая загрузка не закончена.", 0, running.get(5, TimeUnit.SECONDS).getTotal());
+        importer.importPlayers(new BufferedReader(new StringReader("")), 1, parser::parse);
+        importer.shutdown();
+    }
+
+    private JsonNode importBody(String format, String body) throws Exception {
+        String content = mockMvc.perform(post("/rest/players/import?format=" + format)
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(body.getBytes("UTF-8")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
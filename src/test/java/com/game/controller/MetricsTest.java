@@ -0,0 +1,82 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class MetricsTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void countsByEndpointAndStatus() throws Exception {
+        JsonNode before = endpoint("GET /rest/players/{id}");
+        long count = before == null ? 0 : before.get("count").asLong();
+        long notFound = before == null || !before.get("statuses").has("404") ? 0 : before.get("statuses").get("404").asLong();
+
+        mockMvc.perform(get("/rest/players/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/1000")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/rest/players/abc")).andExpect(status().isBadRequest());
+
+        JsonNode after = endpoint("GET /rest/players/{id}");
+        assertEquals("Запросы к endpoint не посчитаны.", count + 3, after.get("count").asLong());
+        assertEquals("Ответы 404 не посчитаны.", notFound + 1, after.get("statuses").get("404").asLong());
+        assertTrue("Ошибки не посчитаны.", after.get("errors").asLong() >= 2);
+        JsonNode phases = after.get("phases");
+        assertTrue("Нет времени по фазам.", phases.has("validation") && phases.has("service")
+                && phases.has("repository") && phases.has("serialization"));
+        assertTrue("Время запроса не записано.", after.get("latency").get("maxMicros").asLong() > 0);
+    }
+
+    //test2
+    @Test
+    public void repositoryTimeIsRecorded() throws Exception {
+        TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF")).andExpect(status().isOk());
+
+        JsonNode getAll = endpoint("GET /rest/players");
+        assertTrue("Время в репозитории не записано.",
+                getAll.get("phases").get("repository").get("maxMicros").asLong() > 0);
+        assertTrue("Время в сервисе не записано.",
+                getAll.get("phases").get("service").get("maxMicros").asLong() > 0);
+        assertTrue("Время сериализации не записано.",
+                getAll.get("phases").get("serialization").get("maxMicros").asLong() > 0);
+    }
+
+    //test3
+    @Test
+    public void prometheusFormat() throws Exception {
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(status().isOk());
+
+        String text = mockMvc.perform(get("/rest/metrics?format=prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue("Нет счетчика запросов.",
+                text.contains("rpg_http_requests_total{endpoint=\"GET /rest/players/count\",status=\"200\"}"));
+        assertTrue("Нет задержек.",
+                text.contains("rpg_http_request_duration_seconds_count{endpoint=\"GET /rest/players/count\"}"));
+        assertTrue("Нет времени по фазам.", text.contains(
+                "rpg_http_request_phase_seconds{endpoint=\"GET /rest/players/count\",phase=\"service\",quantile=\"0.99\"}"));
+    }
+
+    private JsonNode endpoint(String name) throws Exception {
+        String content = mockMvc.perform(get("/rest/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (JsonNode endpoint : mapper.readTree(content).get("endpoints")) {
+            if (name.equals(endpoint.get("endpoint").asText())) {
+                return endpoint;
+            }
+        }
+        return null;
+    }
+}
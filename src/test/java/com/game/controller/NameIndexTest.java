@@ -0,0 +1,74 @@
+package com.game.controller;
+
+import com.game.service.PlayerNameIndex;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NameIndexTest extends AbstractTest {
+
+    private long generation() {
+        return (Long) ReflectionTestUtils.getField(playerNameIndex, "generation");
+    }
+
+    private Set<Long> searchName(String fragment) {
+        return playerNameIndex.search(PlayerNameIndex.Field.NAME, fragment);
+    }
+
+    //test1
+    @Test
+    public void lowerIdAfterHigherIsIndexedInPlace() {
+        //первый поиск загружает индекс
+        searchName("ра");
+        long generation = generation();
+
+        playerNameIndex.put(1000L, "Зюзельфар", "Титул");
+        playerNameIndex.put(900L, "Зюзельдор", "Титул");
+
+        assertEquals("Игрок с меньшим id не найден в индексе.", Collections.singleton(900L), searchName("зельдор"));
+        assertEquals("Индекс перестроен из-за id меньше последнего.", generation, generation());
+
+        playerNameIndex.put(900L, "Кьюрмонд", "Титул");
+        assertEquals("Изменение игрока из переполнения не попало в индекс.", Collections.singleton(900L),
+                searchName("юрмон"));
+        assertTrue("Старое имя игрока из переполнения осталось в индексе.", searchName("зельдор").isEmpty());
+        playerNameIndex.remove(900L);
+        assertTrue("Удаленный игрок из переполнения остался в индексе.", searchName("юрмон").isEmpty());
+        assertEquals("Индекс перестроен из-за изменений в переполнении.", generation, generation());
+    }
+
+    //test2
+    @Test
+    public void overflowIsMergedWithoutReload() {
+        searchName("ра");
+        long generation = generation();
+
+        playerNameIndex.put(100000L, "Верхний", "Титул");
+        for (long id = 50000; id < 52000; id++) {
+            playerNameIndex.put(id, "Нижний" + id, "Титул");
+        }
+
+        assertEquals("Игрок из слитого переполнения не найден.", Collections.singleton(50123L), searchName("нижний50123"));
+        assertEquals("Игрок с наибольшим id потерян при слиянии.", Collections.singleton(100000L), searchName("верхний"));
+        assertEquals("Слияние переполнения перечитало индекс из базы.", generation, generation());
+    }
+
+    //test3
+    @Test
+    public void searchFoldsYoAndDiacritics() {
+        searchName("ра");
+        playerNameIndex.put(41L, "Алёна", "Renée le Petit");
+
+        assertTrue("Поиск \"алена\" не нашел имя с ё.", searchName("алена").contains(41L));
+        assertTrue("Поиск \"АЛЁНА\" не нашел имя с ё.", searchName("АЛЁНА").contains(41L));
+        assertTrue("Поиск без диакритики не нашел титул с ней.",
+                playerNameIndex.search(PlayerNameIndex.Field.TITLE, "renee le").contains(41L));
+        assertTrue("Поиск с диакритикой не нашел титул.",
+                playerNameIndex.search(PlayerNameIndex.Field.TITLE, "RENÉE").contains(41L));
+    }
+}
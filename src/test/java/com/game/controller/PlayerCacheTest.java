@@ -0,0 +1,65 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PlayerCacheTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonNode cacheStats() throws Exception {
+        String content = mockMvc.perform(get("/rest/admin/cache"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+
+    private String nameOf(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content).get("name").asText();
+    }
+
+    //test1
+    @Test
+    public void repeatedGetIsServedFromCache() throws Exception {
+        long hits = cacheStats().get("hits").asLong();
+
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isOk());
+
+        assertEquals("Повторный запрос игрока не попал в кэш.", hits + 1, cacheStats().get("hits").asLong());
+    }
+
+    //test2
+    @Test
+    public void updateRefreshesCachedPlayer() throws Exception {
+        assertEquals("Элеонора", nameOf(5));
+
+        mockMvc.perform(post("/rest/players/5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Гэндальф\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("После обновления из кэша вернулся старый игрок.", "Гэндальф", nameOf(5));
+    }
+
+    //test3
+    @Test
+    public void deleteInvalidatesCachedPlayer() throws Exception {
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/rest/players/5")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/rest/players/5")).andExpect(status().isNotFound());
+    }
+}
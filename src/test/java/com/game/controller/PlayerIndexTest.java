@@ -0,0 +1,133 @@
+package com.game.controller;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerRepositoryCustom;
+import com.game.repository.PlayerRepositoryImpl;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+//планы запросов, которые на самом деле строит PlayerRepositoryImpl (Criteria API): SQL перехватывается
+//StatementInspector'ом сессии Hibernate и проверяется через EXPLAIN, поэтому изменение условий
+//в генерируемом запросе, из-за которого индекс перестает использоваться, здесь не пройдет
+public class PlayerIndexTest extends AbstractTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Autowired
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    //SQL, который Hibernate выполняет для запросов action
+    private List<String> capture(Consumer<PlayerRepositoryCustom> action) {
+        List<String> statements = new ArrayList<>();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        try (Session session = sessionFactory.withOptions()
+                .statementInspector(sql -> {
+                    statements.add(sql);
+                    return sql;
+                })
+                .openSession()) {
+            PlayerRepositoryImpl repository = new PlayerRepositoryImpl();
+            ReflectionTestUtils.setField(repository, "entityManager", session);
+            action.accept(repository);
+        }
+        return statements;
+    }
+
+    //и страница (сортировка по id, как по умолчанию в PlayerService), и подсчет по фильтру идут по index
+    private void assertUsesIndex(PlayerFilter filter, String index) {
+        List<String> statements = capture(repository -> {
+            repository.findAllByFilter(filter, PageRequest.of(0, 3, Sort.by(Sort.Direction.ASC, "id")));
+            repository.countByFilter(filter);
+        });
+        assertFalse("Запросы по фильтру не выполнялись", statements.isEmpty());
+        for (String sql : statements) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters(sql));
+            assertTrue("Запрос \"" + sql + "\" не использует индекс " + index + ":\n" + plan,
+                    plan.toUpperCase().contains(index.toUpperCase()));
+        }
+    }
+
+    //план в H2 строится при подготовке запроса и от значений не зависит: параметры заполняются null
+    private static Object[] parameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return new Object[count];
+    }
+
+    private static PlayerFilter filter(Race race, Profession profession, Date after, Date before, Boolean banned,
+                                       Integer minExperience, Integer maxExperience, Integer minLevel,
+                                       Integer maxLevel) {
+        return new PlayerFilter(null, null, race, profession, after, before, banned, minExperience, maxExperience,
+                minLevel, maxLevel);
+    }
+
+    //test1
+    @Test
+    public void filterRaceUsesIndex() {
+        assertUsesIndex(filter(Race.ELF, null, null, null, null, null, null, null, null),
+                "player_race_profession_level_idx");
+    }
+
+    //test2
+    @Test
+    public void filterRaceProfessionLevelUsesIndex() {
+        assertUsesIndex(filter(Race.ELF, Profession.SORCERER, null, null, null, null, null, 30, null),
+                "player_race_profession_level_idx");
+    }
+
+    //test3
+    @Test
+    public void filterProfessionUsesIndex() {
+        assertUsesIndex(filter(null, Profession.WARRIOR, null, null, null, null, null, null, 40),
+                "player_profession_level_idx");
+    }
+
+    //test4
+    @Test
+    public void filterBannedLevelUsesIndex() {
+        assertUsesIndex(filter(null, null, null, null, true, null, null, 10, 30), "player_banned_level_idx");
+    }
+
+    //test5
+    @Test
+    public void filterBirthdayUsesIndex() {
+        assertUsesIndex(filter(null, null, new Date(1104537600000L), new Date(1230768000000L), null, null, null,
+                null, null), "player_birthday_id_idx");
+    }
+
+    //test6
+    @Test
+    public void filterExperienceUsesIndex() {
+        assertUsesIndex(filter(null, null, null, null, null, 30000, 100000, null, null), "player_experience_id_idx");
+    }
+}
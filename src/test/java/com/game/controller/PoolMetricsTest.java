@@ -0,0 +1,32 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PoolMetricsTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getPoolReturnsLiveMetrics() throws Exception {
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count")).andExpect(status().isOk());
+
+        MvcResult result = mockMvc.perform(get("/rest/admin/pool"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode pool = mapper.readTree(result.getResponse().getContentAsString());
+
+        assertEquals("Неверный размер пула для профиля dev.", 5, pool.get("maximumPoolSize").asInt());
+        assertTrue("Нет данных о текущих соединениях пула.", pool.has("active") && pool.has("idle") && pool.has("pending"));
+        assertTrue("Время получения соединения не записывается.", pool.get("acquire").get("count").asLong() > 0);
+    }
+}
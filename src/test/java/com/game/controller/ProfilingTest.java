@@ -0,0 +1,81 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ProfilingTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void recordingHasRequestAndQueryEvents() throws Exception {
+        String started = mockMvc.perform(post("/rest/admin/jfr?durationSeconds=60"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = mapper.readTree(started).get("id").asLong();
+        try {
+            mockMvc.perform(post("/rest/admin/jfr")).andExpect(status().isConflict());
+            TestsHelper.performAsync(mockMvc, get("/rest/players?race=HOBBIT&pageSize=10")).andExpect(status().isOk());
+
+            JsonNode stopped = mapper.readTree(mockMvc.perform(post("/rest/admin/jfr/" + id + "/stop"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            assertTrue("Запись не остановлена.", !"RUNNING".equals(stopped.get("state").asText()));
+
+            byte[] content = mockMvc.perform(get("/rest/admin/jfr/" + id + "/file"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+            File file = File.createTempFile("profiling-test", ".jfr");
+            try {
+                Files.write(file.toPath(), content);
+                List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+
+                RecordedEvent request = events.stream()
+                        .filter(event -> event.getEventType().getName().equals("com.game.PlayerRequest"))
+                        .filter(event -> "GET /rest/players".equals(event.getString("endpoint")))
+                        .findFirst().orElse(null);
+                assertTrue("Нет события запроса.", request != null);
+                assertEquals("Параметры запроса.", "race=HOBBIT&pageSize=10", request.getString("query"));
+                assertEquals("Статус ответа.", 200, request.getInt("status"));
+
+                RecordedEvent query = events.stream()
+                        .filter(event -> event.getEventType().getName().equals("com.game.PlayerQuery"))
+                        .filter(event -> event.getString("operation").endsWith(".findAllByFilter"))
+                        .findFirst().orElse(null);
+                assertTrue("Нет события запроса к репозиторию.", query != null);
+                assertTrue("Фильтр запроса.", query.getString("filter").contains("race=HOBBIT"));
+                assertEquals("Кол-во строк.", 3, query.getLong("rows"));
+                assertEquals("Id трассировки как у запроса.", request.getString("traceId"), query.getString("traceId"));
+            } finally {
+                file.delete();
+            }
+        } finally {
+            mockMvc.perform(delete("/rest/admin/jfr/" + id)).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/rest/admin/jfr/" + id + "/file")).andExpect(status().isNotFound());
+    }
+
+    //test2
+    @Test
+    public void badParameters() throws Exception {
+        mockMvc.perform(post("/rest/admin/jfr?profile=nosuch")).andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/admin/jfr?durationSeconds=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/admin/jfr/12345/stop")).andExpect(status().isNotFound());
+    }
+}
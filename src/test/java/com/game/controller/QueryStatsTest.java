@@ -0,0 +1,81 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class QueryStatsTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void hibernateStatisticsToggle() throws Exception {
+        JsonNode disabled = json(get("/rest/admin/hibernate"));
+        assertEquals("Статистика по умолчанию выключена.", false, disabled.get("enabled").asBoolean());
+
+        mockMvc.perform(post("/rest/admin/hibernate?enabled=true")).andExpect(status().isOk());
+        try {
+            mockMvc.perform(delete("/rest/admin/hibernate")).andExpect(status().isOk());
+            TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF&pageSize=10")).andExpect(status().isOk());
+            TestsHelper.performAsync(mockMvc, get("/rest/players/count?race=ELF")).andExpect(status().isOk());
+
+            JsonNode stats = json(get("/rest/admin/hibernate"));
+            assertEquals("Статистика не включилась.", true, stats.get("enabled").asBoolean());
+            assertTrue("Запросы не посчитаны.", stats.get("queryExecutions").asLong() >= 2);
+            assertTrue("Загрузка сущностей не посчитана.", stats.get("entityLoads").asLong() > 0);
+            long rows = 0;
+            for (JsonNode query : stats.get("queries")) {
+                assertTrue("Нет числа выполнений запроса.", query.get("executions").asLong() > 0);
+                rows += query.get("rows").asLong();
+            }
+            assertTrue("Строки по запросам не посчитаны.", rows > 0);
+        } finally {
+            mockMvc.perform(post("/rest/admin/hibernate?enabled=false")).andExpect(status().isOk());
+        }
+    }
+
+    //test2
+    @Test
+    public void slowQueryLogKeepsFilterParameters() throws Exception {
+        mockMvc.perform(delete("/rest/admin/slow-queries")).andExpect(status().isOk());
+        mockMvc.perform(post("/rest/admin/slow-queries?thresholdMillis=0")).andExpect(status().isOk());
+        try {
+            TestsHelper.performAsync(mockMvc, get("/rest/players?race=DWARF&minLevel=5&order=LEVEL&pageNumber=1&pageSize=2"))
+                    .andExpect(status().isOk());
+            TestsHelper.performAsync(mockMvc, get("/rest/players/count?banned=true")).andExpect(status().isOk());
+
+            JsonNode log = json(get("/rest/admin/slow-queries"));
+            assertEquals("В журнале не все вызовы.", 2, log.get("total").asInt());
+            JsonNode count = log.get("entries").get(0);
+            assertEquals("Самый новый вызов первым.", "findAllByParamsAndCount", count.get("operation").asText());
+            assertEquals("Условие фильтра.", true, count.get("filter").get("banned").asBoolean());
+            JsonNode find = log.get("entries").get(1);
+            assertEquals("Условие фильтра.", "DWARF", find.get("filter").get("race").asText());
+            assertEquals("Условие фильтра.", 5, find.get("filter").get("minLevel").asInt());
+            assertEquals("Заданы только переданные условия.", 2, find.get("filter").size());
+            assertEquals("Сортировка.", "LEVEL", find.get("order").asText());
+            assertEquals("Страница.", 1, find.get("pageNumber").asInt());
+        } finally {
+            mockMvc.perform(post("/rest/admin/slow-queries?thresholdMillis=200")).andExpect(status().isOk());
+            mockMvc.perform(delete("/rest/admin/slow-queries")).andExpect(status().isOk());
+        }
+        mockMvc.perform(post("/rest/admin/slow-queries?thresholdMillis=-1")).andExpect(status().isBadRequest());
+    }
+
+    private JsonNode json(RequestBuilder request) throws Exception {
+        String content = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content);
+    }
+}
@@ -0,0 +1,58 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SearchByNameTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void searchFindsCreatedPlayer() throws Exception {
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=рылис")).andExpect(content().string("0"));
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=рылис")).andExpect(content().string("1"));
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=рылис&title=озел")).andExpect(content().string("1"));
+    }
+
+    //test2
+    @Test
+    public void searchFollowsUpdatedName() throws Exception {
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Гэндальф\"}"))
+                .andExpect(status().isOk());
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=Ниус")).andExpect(content().string("0"));
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=ндаль")).andExpect(content().string("1"));
+    }
+
+    //test3
+    @Test
+    public void searchSkipsDeletedPlayer() throws Exception {
+        mockMvc.perform(delete("/rest/players/2")).andExpect(status().isOk());
+
+        TestsHelper.performAsync(mockMvc, get("/rest/players/count?name=Никрашш")).andExpect(content().string("0"));
+    }
+
+    //test4
+    @Test
+    public void searchKeepsLikeWildcards() throws Exception {
+        //_ в like - любой символ: индекс такой фрагмент не сужает, поиск идет по базе как раньше
+        TestsHelper.performAsync(mockMvc, get("/rest/players?name=Ни_с"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Ниус")));
+    }
+}
@@ -0,0 +1,93 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.metrics.RequestMetricsInterceptor;
+import com.game.tracing.Tracer;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class TracingTest extends AbstractTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void sampledRequestExportsPhaseSpans() throws Exception {
+        String traceId = "0af7651916cd43dd8448eb211c80319c";
+        TestsHelper.performAsync(mockMvc, get("/rest/players?race=ELF")
+                .header(RequestMetricsInterceptor.TRACEPARENT_HEADER, "00-" + traceId + "-b7ad6b7169203331-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RequestMetricsInterceptor.TRACE_ID_HEADER, traceId));
+
+        Map<String, JsonNode> spans = exportedSpans(traceId);
+        JsonNode root = spans.get("GET /rest/players");
+        assertTrue("Нет корневого span запроса.", root != null);
+        assertEquals("Родитель корневого span - из traceparent.", "b7ad6b7169203331", root.get("parentSpanId").asText());
+        assertEquals("Вид корневого span - SERVER.", 2, root.get("kind").asInt());
+
+        JsonNode controller = spans.get("PlayerController.getAll");
+        JsonNode service = spans.get("PlayerService.findAllByParams");
+        JsonNode repository = spans.get("PlayerRepositoryCustom.findAllByFilter");
+        JsonNode serialization = spans.get("serialization");
+        assertTrue("Нет span фаз: " + spans.keySet(),
+                controller != null && service != null && repository != null && serialization != null);
+        assertEquals("Контроллер вложен в запрос.", root.get("spanId"), controller.get("parentSpanId"));
+        assertEquals("Сервис вложен в контроллер.", controller.get("spanId"), service.get("parentSpanId"));
+        assertEquals("Репозиторий вложен в сервис.", service.get("spanId"), repository.get("parentSpanId"));
+        assertEquals("Сериализация вложена в запрос.", root.get("spanId"), serialization.get("parentSpanId"));
+        assertTrue("Неверное время span.", Long.parseLong(root.get("startTimeUnixNano").asText())
+                <= Long.parseLong(repository.get("startTimeUnixNano").asText()));
+    }
+
+    //test2
+    @Test
+    public void unsampledRequestHasTraceIdOnly() throws Exception {
+        mockMvc.perform(get("/rest/players/1")
+                .header(RequestMetricsInterceptor.TRACEPARENT_HEADER, "00-" + TRACE_ID + "-00f067aa0ba902b7-00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(RequestMetricsInterceptor.TRACE_ID_HEADER, TRACE_ID));
+
+        assertTrue("Span запроса не из выборки записаны.", exportedSpans(TRACE_ID).isEmpty());
+
+        mockMvc.perform(post("/rest/admin/tracing?sampleRate=2")).andExpect(status().isBadRequest());
+    }
+
+    //span трассировки traceId из файла exporter по именам
+    private Map<String, JsonNode> exportedSpans(String traceId) throws Exception {
+        Tracer tracer = context.getBean(Tracer.class);
+        tracer.flush();
+        Map<String, JsonNode> spans = new HashMap<>();
+        File file = new File(tracer.snapshot().get("file").toString());
+        if (!file.exists()) {
+            return spans;
+        }
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            for (JsonNode resource : mapper.readTree(line).get("resourceSpans")) {
+                for (JsonNode scope : resource.get("scopeSpans")) {
+                    for (JsonNode span : scope.get("spans")) {
+                        if (traceId.equals(span.get("traceId").asText())) {
+                            spans.put(span.get("name").asText(), span);
+                        }
+                    }
+                }
+            }
+        }
+        return spans;
+    }
+}
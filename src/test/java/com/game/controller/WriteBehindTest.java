@@ -0,0 +1,172 @@
+package com.game.controller;
+
+import com.game.entity.Player;
+import com.game.metrics.SlowQueryLog;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerService;
+import com.game.service.PlayerWriteBuffer;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//отложенная запись: чтение видит буфер, база меняется только после записи пачки
+public class WriteBehindTest extends AbstractTest {
+
+    private PlayerRepository playerRepository;
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    public void setPlayerRepository(PlayerRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    private PlayerService service(PlayerWriteBuffer buffer) {
+        PlayerService service = new PlayerService(playerRepository, playerNameIndex, playerColumnStore, playerCache,
+                playerIdAllocator, buffer, new SlowQueryLog(200, 100), transactionManager);
+        ReflectionTestUtils.setField(service, "grantChunkSize", 100);
+        return service;
+    }
+
+    //test1
+    @Test
+    public void updatesAreMergedAndVisibleBeforeFlush() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 100, 100, 0);
+        PlayerService service = service(buffer);
+
+        service.addExperience(1L, 100);
+        Player patch = new Player();
+        patch.setName("Новый");
+        service.updatePlayer(1L, patch);
+        service.addExperience(1L, 1553);
+
+        Player buffered = service.findById(1L).get();
+        assertEquals("Изменения не слиты в одну запись.", 1, buffer.getQueueDepth());
+        assertEquals("Чтение не видит буфер.", "Новый", buffered.getName());
+        assertEquals("Чтение не видит буфер.", 60000, (int) buffered.getExperience());
+        assertEquals("Уровень не пересчитан.", 34, (int) buffered.getLevel());
+        assertEquals("Запись в базу до flush.", 58347, (int) playerRepository.findById(1L).get().getExperience());
+
+        buffer.flush();
+
+        Player stored = playerRepository.findById(1L).get();
+        assertEquals("Буфер не очищен.", 0, buffer.getQueueDepth());
+        assertEquals("Изменения не записаны.", "Новый", stored.getName());
+        assertEquals("Изменения не записаны.", 60000, (int) stored.getExperience());
+        assertEquals("Изменения не записаны.", 34, (int) stored.getLevel());
+        assertEquals("Кэш не обновлен после записи.", 60000, (int) service.findById(1L).get().getExperience());
+    }
+
+    //test2
+    @Test
+    public void fullBufferIsFlushedByCaller() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 2, 100, 0);
+        PlayerService service = service(buffer);
+
+        service.addExperience(1L, 10);
+        service.addExperience(2L, 10);
+        service.addExperience(3L, 10);
+
+        assertEquals("Буфер превысил предел.", 1, buffer.getQueueDepth());
+        assertEquals("Переполненный буфер не записан.", 58357, (int) playerRepository.findById(1L).get().getExperience());
+        assertEquals("Переполненный буфер не записан.", 174413, (int) playerRepository.findById(2L).get().getExperience());
+        assertEquals("Запись в базу до flush.", 804, (int) playerRepository.findById(3L).get().getExperience());
+    }
+
+    //test3
+    @Test
+    public void shutdownFlushesAndMissingPlayersAreSkipped() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 100, 100, 0);
+        PlayerService service = service(buffer);
+
+        service.addExperience(3L, -10000);
+        assertEquals("Несуществующий игрок попал в буфер.", false, service.addExperience(1000L, 10).isPresent());
+        service.addExperience(4L, 5);
+        service.deletePlayer(4L);
+        buffer.shutdown();
+
+        assertEquals("Буфер не записан при остановке.", 0, (int) playerRepository.findById(3L).get().getExperience());
+        assertEquals("Удаленный игрок записан.", false, playerRepository.findById(4L).isPresent());
+    }
+
+    //test4
+    @Test
+    public void forcedFlushDoesNotJoinCallerTransaction() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 1, 100, 0);
+        PlayerService service = service(buffer);
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            service.addExperience(1L, 10);
+            service.addExperience(2L, 10);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals("Запись пачки откатилась вместе с транзакцией вызывающего.",
+                58357, (int) playerRepository.findById(1L).get().getExperience());
+    }
+
+    //test5
+    @Test
+    public void bulkGrantIsNotOverwrittenByBufferedUpdate() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 100, 100, 0);
+        PlayerService service = service(buffer);
+
+        Player patch = new Player();
+        patch.setExperience(1000);
+        service.updatePlayer(1L, patch);
+        service.updatePlayer(2L, patch);
+        service.grantExperience(Collections.singletonList(1L), 500);
+        service.grantExperience(new PlayerFilter("Никрашш", null, null, null, null, null, null, null, null, null, null), 300);
+        buffer.flush();
+
+        assertEquals("Начисление по списку затерто опытом из буфера.",
+                1500, (int) playerRepository.findById(1L).get().getExperience());
+        assertEquals("Начисление по фильтру затерто опытом из буфера.",
+                1300, (int) playerRepository.findById(2L).get().getExperience());
+    }
+
+    //test6
+    @Test
+    public void bufferedIncrementsAreClampedAtEveryStep() {
+        PlayerWriteBuffer buffer = new PlayerWriteBuffer(true, 100, 100, 0);
+        PlayerService service = service(buffer);
+
+        //у игрока 3 опыт 804: как и без буфера, 804 - 1000 = 0, затем 0 + 100 = 100
+        service.addExperience(3L, -1000);
+        service.addExperience(3L, 100);
+        Player patch = new Player();
+        patch.setExperience(50);
+        service.updatePlayer(4L, patch);
+        service.addExperience(4L, -100);
+        service.addExperience(4L, 100);
+        service.addExperience(5L, 9999999);
+        service.addExperience(5L, 9999999);
+        service.addExperience(5L, -10);
+
+        assertEquals("Чтение через буфер обрезает опыт не на каждом шаге.", 100, (int) service.findById(3L).get().getExperience());
+        buffer.flush();
+        assertEquals("Прибавки в буфере обрезаны не на каждом шаге.", 100, (int) playerRepository.findById(3L).get().getExperience());
+        assertEquals("Прибавки после присвоения обрезаны не на каждом шаге.", 100, (int) playerRepository.findById(4L).get().getExperience());
+        assertEquals("Прибавки в буфере обрезаны не на каждом шаге.", 9999990, (int) playerRepository.findById(5L).get().getExperience());
+    }
+
+    //test7
+    @Test
+    public void adminShowsWriteBuffer() throws Exception {
+        mockMvc.perform(get("/rest/admin/write-buffer")).andExpect(status().isOk());
+    }
+}
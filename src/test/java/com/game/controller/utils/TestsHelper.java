@@ -1,13 +1,23 @@
 package com.game.controller.utils;
 
-import com.game.controller.PlayerOrder;
+import com.game.entity.PlayerOrder;
 import com.game.entity.Profession;
 import com.game.entity.Race;
 
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 
 public class
 TestsHelper {
@@ -302,7 +312,38 @@ TestsHelper {
         return result;
     }
 
+    public List<PlayerInfoTest> getPlayerInfosByOrder(PlayerOrder order, List<PlayerInfoTest> players) {
+        Comparator<PlayerInfoTest> comparator;
+        switch (order) {
+            case NAME:
+                comparator = Comparator.comparing(player -> player.name);
+                break;
+            case EXPERIENCE:
+                comparator = Comparator.comparing(player -> player.experience);
+                break;
+            case BIRTHDAY:
+                comparator = Comparator.comparing(player -> player.birthday);
+                break;
+            case LEVEL:
+                comparator = Comparator.comparing(player -> player.level);
+                break;
+            default:
+                comparator = Comparator.comparing(player -> player.id);
+        }
+        List<PlayerInfoTest> result = new ArrayList<>(players);
+        result.sort(comparator.thenComparing(player -> player.id));
+        return result;
+    }
+
     public PlayerInfoTest getPlayerInfosById(long id) {
         return allPlayers.stream().filter(s -> s.id == id).findFirst().orElse(null);
     }
-}
\ No newline at end of file
+
+    //GET /rest/players и /rest/players/count отвечают асинхронно (CompletableFuture из QueryExecutor):
+    //проверяем, что обработка ушла в async, ждем результат и выполняем async dispatch
+    public static ResultActions performAsync(MockMvc mockMvc, RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        result.getAsyncResult(TimeUnit.SECONDS.toMillis(30));
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}